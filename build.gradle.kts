@@ -8,6 +8,7 @@ plugins {
     alias(libs.plugins.intelliJPlatform) // IntelliJ Platform Gradle Plugin
     alias(libs.plugins.changelog) // Gradle Changelog Plugin
     alias(libs.plugins.qodana) // Gradle Qodana Plugin
+    alias(libs.plugins.jmh) // JMH Gradle Plugin
 }
 
 group = providers.gradleProperty("pluginGroup").get()
@@ -144,6 +145,18 @@ changelog {
     repositoryUrl = providers.gradleProperty("pluginRepositoryUrl")
 }
 
+// Configure JMH Gradle Plugin - read more: https://github.com/melix/jmh-gradle-plugin
+// Benchmarks live in src/jmh and run with `./gradlew jmh`; the gc profiler reports allocation per operation.
+jmh {
+    jmhVersion = libs.versions.jmh
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
+
+// The benchmarks run outside the IDE, but the search still loads a few platform classes such as the logger
+configurations.named("jmhRuntimeClasspath") {
+    extendsFrom(configurations["intellijPlatformClasspath"])
+}
 
 tasks {
     wrapper {
@@ -153,6 +166,24 @@ tasks {
     publishPlugin {
         dependsOn(patchChangelog)
     }
+
+    // Writes a synthetic reference corpus for scale testing, e.g. ./gradlew generateReferences -PreferenceCount=1000000
+    // The same count and seed always give the same files; the benchmarks use the default seed.
+    register<JavaExec>("generateReferences") {
+        group = "benchmark"
+        description = "Generates synthetic reference files in build/generated-references"
+
+        val count = providers.gradleProperty("referenceCount").orElse("100000")
+        val seed = providers.gradleProperty("referenceSeed").orElse("42")
+        val outputDir = layout.buildDirectory.dir(count.zip(seed) { c, s -> "generated-references/$c-seed$s" })
+
+        classpath = sourceSets["jmh"].runtimeClasspath
+        mainClass = "com.zachholt.referencelookup.benchmark.ReferenceFileGenerator"
+        argumentProviders += CommandLineArgumentProvider {
+            listOf(outputDir.get().asFile.path, count.get(), seed.get())
+        }
+        outputs.dir(outputDir)
+    }
 }
 
 intellijPlatformTesting {
@@ -0,0 +1,65 @@
+package com.zachholt.referencelookup.benchmark;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+import com.zachholt.referencelookup.parser.JavaConstantParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reference files and items shared by the benchmarks, written by {@link ReferenceFileGenerator} with its default
+ * seed. The content depends only on the size, so results of different runs and machines compare, and match a
+ * corpus written by the {@code generateReferences} task.
+ */
+public final class BenchmarkCorpus {
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * Writes a single Java class with the given number of constants to the file.
+     */
+    public static void write(Path file, int constants) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new ReferenceFileGenerator(ReferenceFileGenerator.DEFAULT_SEED).writeClass(out, "Reference", constants);
+        }
+    }
+
+    /**
+     * Returns the items of a generated corpus of the given size, parsed as the plugin would load them.
+     */
+    public static List<ReferenceItem> items(int constants) {
+        try {
+            Path directory = Files.createTempDirectory("reference-benchmark");
+            try {
+                List<Path> files = new ReferenceFileGenerator(ReferenceFileGenerator.DEFAULT_SEED)
+                    .generate(directory, constants, ReferenceFileGenerator.DEFAULT_CONSTANTS_PER_FILE);
+                List<ReferenceItem> items = new ArrayList<>(constants);
+                JavaConstantParser parser = new JavaConstantParser();
+                for (Path file : files) {
+                    String source = file.toString();
+                    parser.parseJavaFile(file, item -> {
+                        item.setSource(source);
+                        items.add(item);
+                    });
+                }
+                return items;
+            } finally {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
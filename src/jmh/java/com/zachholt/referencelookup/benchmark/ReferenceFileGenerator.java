@@ -0,0 +1,309 @@
+package com.zachholt.referencelookup.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes synthetic reference files for scale testing: Java classes of {@code public static final} constants
+ * that look like real reference data.
+ * <p>
+ * Constants mix int, String, long and double values and carry JavaDoc, line or trailing comments, or none.
+ * Their names start with domain prefixes drawn from a Zipf distribution, so a few prefixes are very common, as in
+ * real code tables. Nested constant classes, enums with constructor arguments and private fields appear in between;
+ * only the public constants are counted.
+ * <p>
+ * The output depends only on the seed, the constant count and the constants per file, so a corpus can be
+ * regenerated anywhere instead of being checked in.
+ */
+public final class ReferenceFileGenerator {
+    public static final long DEFAULT_SEED = 42;
+    // Larger classes exceed the constant pool of a class file, so they would not compile
+    public static final int DEFAULT_CONSTANTS_PER_FILE = 10_000;
+
+    private static final String PACKAGE = "com.example.reference.generated";
+    // Exponent of the prefix distribution; around 1 for naming in natural data
+    private static final double ZIPF_EXPONENT = 1.1;
+    // Constants in a row sharing a prefix, like one code table
+    private static final int MAX_SECTION = 40;
+
+    private static final String[] PREFIXES = {
+        "PARTY", "ACCOUNT", "CLAIM", "POLICY", "PAYMENT", "HTTP", "STATUS", "ORDER", "MEMBER", "EMPLOYER",
+        "ADDRESS", "INVOICE", "TAX", "BENEFIT", "COVERAGE", "PROVIDER", "CONTRACT", "LEDGER", "ERROR", "EVENT",
+        "AUDIT", "BATCH", "CHANNEL", "COUNTRY", "CURRENCY", "DOCUMENT", "FEE", "GRADE", "INCIDENT", "JOB",
+        "LICENSE", "MESSAGE", "NOTICE", "OFFICE", "PERMIT", "QUEUE", "REGION", "SCHEDULE", "TICKET", "UNIT",
+        "VENDOR", "WAGE", "APPEAL", "BILLING", "CASE", "DEPOSIT", "EXEMPTION", "FILING", "HEARING", "LIEN"
+    };
+    private static final String[] WORDS = {
+        "TYPE", "CODE", "STATUS", "CLASS", "REASON", "LIMIT", "RATE", "DATE", "AMOUNT", "FLAG",
+        "ACTIVE", "CLOSED", "PENDING", "APPROVED", "DENIED", "SUSPENDED", "EXPIRED", "PRIMARY", "SECONDARY", "DEFAULT",
+        "ORGANIZATION", "INDIVIDUAL", "EMPLOYER", "AGENT", "CONTACT", "MAILING", "PHYSICAL", "ANNUAL", "MONTHLY", "WEEKLY",
+        "MAX", "MIN", "TIMEOUT", "RETRY", "COUNT", "SIZE", "LEVEL", "CATEGORY", "GROUP", "SOURCE",
+        "OVERPAYMENT", "ADJUSTMENT", "REFUND", "PENALTY", "INTEREST", "WAIVER", "TRANSFER", "REVERSAL", "HOLD", "RELEASE"
+    };
+    private static final String[] PHRASES = {
+        "Used when the record was created by a batch job",
+        "Applies only to records migrated from the legacy system",
+        "Set by the nightly reconciliation",
+        "Shown on correspondence sent to the customer",
+        "Requires supervisor approval before it can be changed",
+        "Deprecated in favour of the newer code table",
+        "Reported to the federal agency each quarter",
+        "Kept for historical records only"
+    };
+    private static final String[] ENUM_VALUES = {
+        "ACTIVE", "INACTIVE", "PENDING", "APPROVED", "DENIED", "CLOSED", "REOPENED", "SUSPENDED", "ARCHIVED", "DRAFT"
+    };
+
+    private final long seed;
+    private final double[] prefixWeights;
+
+    public ReferenceFileGenerator(long seed) {
+        this.seed = seed;
+        // Cumulative Zipf weights of the prefixes, by rank
+        this.prefixWeights = new double[PREFIXES.length];
+        double total = 0;
+        for (int rank = 0; rank < PREFIXES.length; rank++) {
+            total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            prefixWeights[rank] = total;
+        }
+        for (int rank = 0; rank < PREFIXES.length; rank++) {
+            prefixWeights[rank] /= total;
+        }
+    }
+
+    /**
+     * Writes the constants to {@code Reference0001.java} and following files in the directory, at most
+     * {@code constantsPerFile} per file, and returns the files in order.
+     */
+    public List<Path> generate(Path directory, int constants, int constantsPerFile) throws IOException {
+        if (constants < 0 || constantsPerFile <= 0) {
+            throw new IllegalArgumentException("Invalid corpus size: " + constants + " constants, " + constantsPerFile + " per file");
+        }
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        List<Path> files = new ArrayList<>();
+        int written = 0;
+        do {
+            String className = String.format(Locale.ROOT, "Reference%04d", files.size() + 1);
+            Path file = directory.resolve(className + ".java");
+            int count = Math.min(constantsPerFile, constants - written);
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writeClass(out, className, count, random);
+            }
+            files.add(file);
+            written += count;
+        } while (written < constants);
+        return files;
+    }
+
+    /**
+     * Writes a single class with the given number of constants.
+     */
+    public void writeClass(Writer writer, String className, int constants) throws IOException {
+        writeClass(writer, className, constants, new Random(seed));
+    }
+
+    private void writeClass(Writer writer, String className, int constants, Random random) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+        out.write("package " + PACKAGE + ";\n\n");
+        out.write("/**\n * Generated reference codes. Do not edit.\n */\n");
+        out.write("public final class " + className + " {\n");
+        out.write("    private " + className + "() {\n    }\n");
+
+        // Names are unique per class, as the compiler would require
+        Set<String> names = new HashSet<>();
+        int written = 0;
+        // Numbers the nested classes, enums and private fields
+        int extras = 0;
+        String nestedClass = null;
+        while (written < constants) {
+            String indent = nestedClass != null ? "        " : "    ";
+            int roll = random.nextInt(100);
+            if (roll < 3 && nestedClass == null) {
+                String prefix = capitalize(nextPrefix(random));
+                nestedClass = prefix + "Codes" + ++extras;
+                out.write("\n    /** " + prefix + " codes grouped by table. */\n");
+                out.write("    public static final class " + nestedClass + " {\n");
+                continue;
+            }
+            if (roll < 6 && nestedClass != null) {
+                out.write("    }\n");
+                nestedClass = null;
+                continue;
+            }
+            if (roll < 7) {
+                writeEnum(out, indent, random, ++extras);
+                continue;
+            }
+            if (roll < 9) {
+                out.write("\n" + indent + "private static final int INTERNAL_" + ++extras + " = " + random.nextInt(1000) + ";\n");
+                continue;
+            }
+
+            String prefix = nextPrefix(random);
+            int section = Math.min(1 + random.nextInt(MAX_SECTION), constants - written);
+            out.write("\n" + indent + "// " + capitalize(prefix) + " codes\n");
+            for (int i = 0; i < section; i++) {
+                String name = uniqueName(prefix, random, names);
+                if (random.nextInt(50) == 0 && written + 2 <= constants) {
+                    // Two constants in one declaration
+                    String second = uniqueName(prefix, random, names);
+                    out.write(indent + "public static final int " + name + " = " + random.nextInt(100_000)
+                        + ", " + second + " = " + random.nextInt(100_000) + ";\n");
+                    written += 2;
+                    i++;
+                    continue;
+                }
+                writeConstant(out, indent, name, written, random);
+                written++;
+            }
+        }
+        if (nestedClass != null) {
+            out.write("    }\n");
+        }
+        out.write("}\n");
+        out.flush();
+    }
+
+    private void writeConstant(BufferedWriter out, String indent, String name, int ordinal, Random random) throws IOException {
+        String type;
+        String value;
+        int kind = random.nextInt(100);
+        if (kind < 55) {
+            type = "int";
+            value = Integer.toString(random.nextInt(10) < 7 ? 10_000 + ordinal : random.nextInt(1_000_000));
+        } else if (kind < 80) {
+            type = "String";
+            value = random.nextBoolean()
+                ? "\"" + name.substring(0, Math.min(4, name.length())) + ordinal % 1000 + "\""
+                : "\"" + phrase(name, random).replace("\"", "\\\"") + "\"";
+        } else if (kind < 90) {
+            type = "long";
+            value = (1_000_000_000L + random.nextInt(Integer.MAX_VALUE)) + "L";
+        } else {
+            type = "double";
+            value = String.format(Locale.ROOT, "%.4f", random.nextDouble() * 100);
+        }
+
+        String description = describe(name, random);
+        String declaration = "public static final " + type + " " + name + " = " + value + ";";
+        int comment = random.nextInt(100);
+        if (comment < 35) {
+            out.write(indent + "/** " + description + " */\n");
+        } else if (comment < 50) {
+            out.write(indent + "/**\n" + indent + " * " + description + "\n" + indent + " * <p>\n"
+                + indent + " * " + PHRASES[random.nextInt(PHRASES.length)] + ".\n"
+                + indent + " *\n" + indent + " * @since " + (1 + random.nextInt(9)) + "." + random.nextInt(10) + "\n"
+                + indent + " */\n");
+            if (random.nextInt(10) == 0) {
+                out.write(indent + "@Deprecated\n");
+            }
+        } else if (comment < 65) {
+            out.write(indent + "// " + description + "\n");
+        } else if (comment < 85) {
+            out.write(indent + declaration + " // " + description + "\n");
+            return;
+        }
+        out.write(indent + declaration + "\n");
+    }
+
+    private void writeEnum(BufferedWriter out, String indent, Random random, int ordinal) throws IOException {
+        String name = capitalize(nextPrefix(random)) + "State" + ordinal;
+        out.write("\n" + indent + "/** States of a " + name.toLowerCase(Locale.ROOT) + " record. */\n");
+        out.write(indent + "public enum " + name + " {\n");
+        int values = 2 + random.nextInt(6);
+        for (int i = 0; i < values; i++) {
+            String value = ENUM_VALUES[(ordinal + i) % ENUM_VALUES.length];
+            out.write(indent + "    " + value + "(\"" + value.charAt(0) + i + "\", " + (i + 1) * 10 + ")"
+                + (i + 1 < values ? "," : ";") + "\n");
+        }
+        out.write("\n" + indent + "    private final String code;\n");
+        out.write(indent + "    private final int rank;\n\n");
+        out.write(indent + "    " + name + "(String code, int rank) {\n");
+        out.write(indent + "        this.code = code;\n");
+        out.write(indent + "        this.rank = rank;\n");
+        out.write(indent + "    }\n\n");
+        out.write(indent + "    public String getCode() {\n" + indent + "        return code;\n" + indent + "    }\n");
+        out.write(indent + "}\n");
+    }
+
+    private String nextPrefix(Random random) {
+        int rank = Arrays.binarySearch(prefixWeights, random.nextDouble());
+        return PREFIXES[Math.min(rank < 0 ? -rank - 1 : rank, PREFIXES.length - 1)];
+    }
+
+    private static String uniqueName(String prefix, Random random, Set<String> names) {
+        StringBuilder name = new StringBuilder(prefix);
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            name.append('_').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        String base = name.toString();
+        String unique = base;
+        for (int suffix = 2; !names.add(unique); suffix++) {
+            unique = base + "_" + suffix;
+        }
+        return unique;
+    }
+
+    /**
+     * Returns a description in the style of real code tables, such as
+     * {@code Party type - organization = 'Employer class' (10210).}
+     */
+    private static String describe(String name, Random random) {
+        String[] words = name.split("_");
+        StringBuilder description = new StringBuilder(capitalize(words[0]));
+        for (int i = 1; i < words.length; i++) {
+            description.append(i == 2 ? " - " : " ").append(words[i].toLowerCase(Locale.ROOT));
+        }
+        switch (random.nextInt(4)) {
+            case 0:
+                return description + " = '" + capitalize(WORDS[random.nextInt(WORDS.length)]) + " "
+                    + WORDS[random.nextInt(WORDS.length)].toLowerCase(Locale.ROOT) + "' (" + (10_000 + random.nextInt(90_000)) + ").";
+            case 1:
+                return description + ". " + PHRASES[random.nextInt(PHRASES.length)] + ".";
+            default:
+                return description.toString();
+        }
+    }
+
+    private static String phrase(String name, Random random) {
+        String phrase = PHRASES[random.nextInt(PHRASES.length)];
+        // An occasional quote, which the parser must keep escaped
+        return random.nextInt(20) == 0 ? phrase + " (\"" + name.toLowerCase(Locale.ROOT) + "\")" : phrase;
+    }
+
+    private static String capitalize(String word) {
+        return word.isEmpty() ? word : word.charAt(0) + word.substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Arguments: output directory, constant count, and optionally the seed and the constants per file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReferenceFileGenerator <output directory> <constants> [seed] [constants per file]");
+            System.exit(2);
+        }
+        Path directory = Path.of(args[0]);
+        int constants = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        int perFile = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CONSTANTS_PER_FILE;
+
+        long start = System.nanoTime();
+        List<Path> files = new ReferenceFileGenerator(seed).generate(directory, constants, perFile);
+        System.out.println("Wrote " + constants + " constants to " + files.size() + " file(s) in " + directory
+            + " (seed " + seed + ", " + (System.nanoTime() - start) / 1_000_000 + "ms)");
+    }
+}
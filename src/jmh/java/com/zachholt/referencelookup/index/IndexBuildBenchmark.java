@@ -0,0 +1,34 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.benchmark.BenchmarkCorpus;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of building a heap index from parsed items, as after a cache miss.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndexBuildBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int items;
+
+    private List<ReferenceItem> parsed;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        parsed = BenchmarkCorpus.items(items);
+    }
+
+    @Benchmark
+    public ReferenceIndex build() {
+        return ReferenceIndex.build(parsed, 1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zachholt.referencelookup.parser;
+
+import com.zachholt.referencelookup.benchmark.BenchmarkCorpus;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the regex parser, collecting a list and streaming to a consumer.
+ * <p>
+ * The PSI parser is not measured here: it needs a running IDE with a project and read actions, which a forked
+ * benchmark JVM does not have.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"1000", "100000"})
+    int constants;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("reference-benchmark", ".java");
+        BenchmarkCorpus.write(file, constants);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<ReferenceItem> parseToList() throws IOException {
+        return new JavaConstantParser().parseJavaFile(file);
+    }
+
+    @Benchmark
+    public void parseStreaming(Blackhole blackhole) throws IOException {
+        new JavaConstantParser().parseJavaFile(file, blackhole::consume);
+    }
+}
@@ -0,0 +1,87 @@
+package com.zachholt.referencelookup.service;
+
+import com.zachholt.referencelookup.benchmark.BenchmarkCorpus;
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one search by kind of query, without the query cache. A limit of 11 is what the context menu asks
+ * for; -1 is the Reference Browser, which keeps every match.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    public enum QueryKind {
+        /** The full code of a reference. */
+        EXACT_CODE,
+        /** The first letters of a code, matching many references. */
+        PREFIX,
+        /** A fragment of a description. */
+        DESCRIPTION,
+        /** A code with two letters swapped, which only the fuzzy pass finds. */
+        FUZZY_MISS
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    int items;
+
+    @Param
+    QueryKind kind;
+
+    @Param({"11", "-1"})
+    int limit;
+
+    private ReferenceIndex index;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        index = ReferenceIndex.build(BenchmarkCorpus.items(items), 1);
+        ReferenceItem sample = index.get(index.size() / 2);
+        String code = sample.getCodeLower();
+        switch (kind) {
+            case EXACT_CODE:
+                query = code;
+                break;
+            case PREFIX:
+                query = code.substring(0, 4);
+                break;
+            case DESCRIPTION:
+                query = descriptionFragment(index.size() / 2);
+                break;
+            case FUZZY_MISS:
+                char[] typo = code.toCharArray();
+                char swap = typo[2];
+                typo[2] = typo[3];
+                typo[3] = swap;
+                query = new String(typo);
+                break;
+        }
+    }
+
+    /**
+     * Returns eight characters from the middle of the first description, from the given item on, that has as many.
+     */
+    private String descriptionFragment(int from) {
+        for (int i = 0; i < index.size(); i++) {
+            String description = index.get((from + i) % index.size()).getDescriptionLower();
+            if (description != null && description.length() >= 8) {
+                int middle = description.length() / 2;
+                return description.substring(middle - 4, middle + 4).trim();
+            }
+        }
+        throw new IllegalStateException("No description of at least 8 characters among " + index.size() + " items");
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return ReferenceSearch.search(index, null, query, limit, false, null);
+    }
+}
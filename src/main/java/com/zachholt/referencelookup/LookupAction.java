@@ -34,11 +34,11 @@ public class LookupAction extends AnAction implements DumbAware {
                 if (selectedText != null) {
                     String trimmed = selectedText.trim();
                     if (!trimmed.isEmpty()) {
-                        Content content = toolWindow.getContentManager().getSelectedContent();
-                        if (content == null && toolWindow.getContentManager().getContentCount() > 0) {
-                            content = toolWindow.getContentManager().getContent(0);
-                        }
+                        // The browser is the first tab; the Diagnostics tab may be the selected one
+                        Content content = toolWindow.getContentManager().getContentCount() > 0
+                                ? toolWindow.getContentManager().getContent(0) : null;
                         if (content != null) {
+                            toolWindow.getContentManager().setSelectedContent(content);
                             ReferenceBrowserWithTreePanel panel = content.getUserData(ReferenceBrowserWithTreePanel.PANEL_KEY);
                             if (panel != null) {
                                 panel.setSearchText(trimmed);
@@ -4,17 +4,18 @@ import com.intellij.icons.AllIcons;
 import com.intellij.notification.NotificationGroupManager;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.actionSystem.*;
-import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.ui.content.Content;
 import com.zachholt.referencelookup.model.ReferenceItem;
 import com.zachholt.referencelookup.service.ReferenceDataService;
+import com.zachholt.referencelookup.service.SearchResult;
 import com.zachholt.referencelookup.ui.ReferenceBrowserWithTreePanel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -25,31 +26,21 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class QuickLookupAction extends ActionGroup implements DumbAware {
+    private static final Logger LOG = Logger.getInstance(QuickLookupAction.class);
 
-    private static final Key<CachedSearchResult> CACHED_RESULT_KEY = Key.create("QuickLookupAction.CachedResult");
-    private static final long CACHE_VALIDITY_MS = 5000;
-
-    private static class CachedSearchResult {
-        final String query;
-        final List<ReferenceItem> results;
-        final long timestamp;
-
-        CachedSearchResult(String query, List<ReferenceItem> results) {
-            this.query = query;
-            this.results = results;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        boolean isValid(String currentQuery) {
-            return query != null && query.equals(currentQuery)
-                && (System.currentTimeMillis() - timestamp) < CACHE_VALIDITY_MS;
-        }
-    }
+    // Five hits are shown; one more tells whether there are further matches
+    private static final int RESULT_LIMIT = 11;
+    private static final int SHOWN_RESULTS = 5;
 
     public QuickLookupAction() {
         super("Reference Lookup", true);
     }
 
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
     @Override
     public void update(@NotNull AnActionEvent e) {
         Project project = e.getProject();
@@ -59,35 +50,18 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
         e.getPresentation().setEnabledAndVisible(enabled);
 
         if (enabled) {
-            String selectedText = editor.getSelectionModel().getSelectedText();
-            if (selectedText != null && selectedText.trim().length() <= 50) {
-                e.getPresentation().setText("Lookup '" + selectedText.trim() + "'");
-                precomputeSearchResults(project, selectedText.trim());
-            } else {
-                e.getPresentation().setText("Reference Lookup");
-            }
+            // Selected codes often contain underscores, which must not turn into mnemonics
+            e.getPresentation().setText(menuText(editor.getSelectionModel().getSelectedText()), false);
         }
     }
 
-    private void precomputeSearchResults(Project project, String query) {
-        ReferenceDataService service = ReferenceDataService.getInstance(project);
-        if (!service.isLoaded()) {
-            service.loadReferencesAsync();
-            return;
-        }
-
-        CachedSearchResult cached = project.getUserData(CACHED_RESULT_KEY);
-        if (cached != null && cached.isValid(query)) {
-            return;
+    private static String menuText(@Nullable String selectedText) {
+        if (selectedText != null && selectedText.trim().length() <= 50) {
+            return "Lookup '" + selectedText.trim() + "'";
         }
-
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            if (project.isDisposed()) return;
-            List<ReferenceItem> results = service.search(query, 11);
-            project.putUserData(CACHED_RESULT_KEY, new CachedSearchResult(query, results));
-        });
+        return "Reference Lookup";
     }
-    
+
     @Override
     public AnAction @NotNull [] getChildren(@Nullable AnActionEvent e) {
         if (e == null) return EMPTY_ARRAY;
@@ -114,31 +88,34 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             return actions.toArray(new AnAction[0]);
         }
 
-        CachedSearchResult cached = project.getUserData(CACHED_RESULT_KEY);
-        List<ReferenceItem> matches;
-
-        if (cached != null && cached.isValid(query)) {
-            matches = cached.results;
-        } else {
-            precomputeSearchResults(project, query);
-            actions.add(createDisabledAction("Searching..."));
+        SearchResult result;
+        try {
+            // The platform fills the menu on a background thread and shows its own loading item meanwhile. Closing
+            // the menu cancels the update, which stops the search.
+            result = service.searchResult(null, query, RESULT_LIMIT);
+        } catch (ProcessCanceledException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            LOG.warn("Lookup search for '" + query + "' failed", ex);
+            actions.add(createDisabledAction("Search failed"));
+            actions.add(Separator.getInstance());
             actions.add(createOpenBrowserAction(query));
             return actions.toArray(new AnAction[0]);
         }
-        
-        if (!matches.isEmpty()) {
+
+        if (!result.isEmpty()) {
             // Add header with clipboard icon
             actions.add(createCopyHeader());
             actions.add(Separator.getInstance());
-            
-            int count = Math.min(matches.size(), 5);
+
+            int count = Math.min(result.size(), SHOWN_RESULTS);
             for (int i = 0; i < count; i++) {
-                actions.add(new QuickValueAction(matches.get(i)));
+                actions.add(new QuickValueAction(result.getItem(i)));
             }
 
-            if (matches.size() > count) {
+            if (result.size() > count) {
                 actions.add(Separator.getInstance());
-                actions.add(createMoreResultsAction(matches.size() - count, query));
+                actions.add(createMoreResultsAction(result.size() - count, query));
             }
 
             actions.add(Separator.getInstance());
@@ -163,6 +140,11 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             public void update(@NotNull AnActionEvent e) {
                 e.getPresentation().setEnabled(false);
             }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
         };
         return action;
     }
@@ -176,6 +158,11 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             public void update(@NotNull AnActionEvent e) {
                 e.getPresentation().setEnabled(false);
             }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
         };
     }
 
@@ -189,6 +176,11 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             public void actionPerformed(@NotNull AnActionEvent e) {
                 openToolWindowWithSelection(e, searchText);
             }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
         };
     }
 
@@ -198,6 +190,11 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             public void actionPerformed(@NotNull AnActionEvent e) {
                 openToolWindowWithSelection(e, searchText);
             }
+
+            @Override
+            public @NotNull ActionUpdateThread getActionUpdateThread() {
+                return ActionUpdateThread.BGT;
+            }
         };
     }
 
@@ -209,12 +206,11 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
         if (toolWindow != null) {
             toolWindow.show();
             var contentManager = toolWindow.getContentManager();
-            Content content = contentManager.getSelectedContent();
-            if (content == null && contentManager.getContentCount() > 0) {
-                content = contentManager.getContent(0);
-            }
+            // The browser is the first tab; the Diagnostics tab may be the selected one
+            Content content = contentManager.getContentCount() > 0 ? contentManager.getContent(0) : null;
 
             if (content != null) {
+                contentManager.setSelectedContent(content);
                 ReferenceBrowserWithTreePanel panel = content.getUserData(ReferenceBrowserWithTreePanel.PANEL_KEY);
                 if (panel != null && selection != null && !selection.trim().isEmpty()) {
                     panel.setSearchText(selection.trim());
@@ -257,7 +253,18 @@ public class QuickLookupAction extends ActionGroup implements DumbAware {
             }
             return code;
         }
-        
+
+        @Override
+        public void update(@NotNull AnActionEvent e) {
+            // Descriptions and codes are shown as they are, underscores included
+            e.getPresentation().setText(formatMenuItem(item), false);
+        }
+
+        @Override
+        public @NotNull ActionUpdateThread getActionUpdateThread() {
+            return ActionUpdateThread.BGT;
+        }
+
         @Override
         public void actionPerformed(@NotNull AnActionEvent e) {
             Project project = e.getProject();
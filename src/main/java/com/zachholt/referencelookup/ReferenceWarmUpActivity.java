@@ -0,0 +1,27 @@
+package com.zachholt.referencelookup;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.ProjectActivity;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.zachholt.referencelookup.service.ReferenceDataService;
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Loads the references when a project opens, from the index cache when the sources are unchanged,
+ * and then warms up the search path, so the first lookup is as fast as later ones.
+ */
+public final class ReferenceWarmUpActivity implements ProjectActivity, DumbAware {
+
+    @Override
+    public @Nullable Object execute(@NotNull Project project, @NotNull Continuation<? super Unit> continuation) {
+        ReferenceDataService service = ReferenceDataService.getInstance(project);
+        service.loadReferencesAsync();
+        // Load listeners run on the loading thread, so the searches are handed to the pool
+        service.onLoaded(() -> AppExecutorUtil.getAppExecutorService().execute(service::warmUp));
+        return Unit.INSTANCE;
+    }
+}
@@ -0,0 +1,161 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.function.Predicate;
+
+/**
+ * Matches abbreviations of codes, such as "hnf" for HTTP_NOT_FOUND or "dbct" for DB_CONNECTION_TIMEOUT.
+ * <p>
+ * A code is split into words at "_", "-" and whitespace and at camelCase boundaries. A query abbreviates the code
+ * if it is a non-empty prefix of every word, in order. The acronym of a code, the first letter of each word,
+ * is its key in a hash index; a query is looked up under every acronym it could stand for and then verified.
+ */
+final class Abbreviations {
+    // Longer queries are unlikely to be abbreviations and would need too many lookups
+    static final int MAX_QUERY_LENGTH = 16;
+    // Codes with more words are not indexed
+    static final int MAX_ACRONYM_LENGTH = 8;
+
+    private Abbreviations() {
+    }
+
+    /**
+     * Returns true for queries of 2 to {@link #MAX_QUERY_LENGTH} letters and digits.
+     */
+    static boolean supports(String normalizedQuery) {
+        int length = normalizedQuery.length();
+        if (length < 2 || length > MAX_QUERY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!Character.isLetterOrDigit(normalizedQuery.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the lowercase first letters of the words of the code, or null if it has fewer than two
+     * or more than {@link #MAX_ACRONYM_LENGTH} words.
+     */
+    static String acronym(String code) {
+        int[] words = words(code);
+        int count = words.length / 2;
+        if (count < 2 || count > MAX_ACRONYM_LENGTH) {
+            return null;
+        }
+        char[] acronym = new char[count];
+        for (int i = 0; i < count; i++) {
+            acronym[i] = Character.toLowerCase(code.charAt(words[i * 2]));
+        }
+        return new String(acronym);
+    }
+
+    /**
+     * Returns true if the query is a prefix of every word of the code, in order.
+     */
+    static boolean matches(String normalizedQuery, CharSequence code) {
+        // Cheap check first, as mapped stores test every row
+        int first = 0;
+        while (first < code.length() && ReferenceScorer.isTokenSeparator(code.charAt(first))) {
+            first++;
+        }
+        if (first == code.length() || Character.toLowerCase(code.charAt(first)) != normalizedQuery.charAt(0)) {
+            return false;
+        }
+        int[] words = words(code);
+        int count = words.length / 2;
+        return count >= 2 && count <= normalizedQuery.length() && matches(normalizedQuery, 0, code, words, 0);
+    }
+
+    private static boolean matches(String query, int queryPos, CharSequence code, int[] words, int word) {
+        int count = words.length / 2;
+        if (word == count) {
+            return queryPos == query.length();
+        }
+        // Every remaining word needs at least one query character
+        int longest = Math.min(words[word * 2 + 1] - words[word * 2], query.length() - queryPos - (count - word - 1));
+        for (int length = 1; length <= longest; length++) {
+            if (Character.toLowerCase(code.charAt(words[word * 2] + length - 1)) != query.charAt(queryPos + length - 1)) {
+                return false;
+            }
+            if (matches(query, queryPos + length, code, words, word + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls the visitor with the acronyms the query could abbreviate: one letter per word, with each word starting
+     * at a query position and the first one at the start. An acronym is only extended if the visitor returns
+     * true for it.
+     */
+    static void forEachAcronym(String normalizedQuery, int maxLength, Predicate<String> visitor) {
+        char[] acronym = new char[Math.min(maxLength, normalizedQuery.length())];
+        acronym[0] = normalizedQuery.charAt(0);
+        if (visitor.test(normalizedQuery.substring(0, 1))) {
+            forEachAcronym(normalizedQuery, 1, acronym, 1, visitor);
+        }
+    }
+
+    private static void forEachAcronym(String query, int queryPos, char[] acronym, int length, Predicate<String> visitor) {
+        if (length == acronym.length) {
+            return;
+        }
+        for (int i = queryPos; i < query.length(); i++) {
+            acronym[length] = query.charAt(i);
+            if (visitor.test(new String(acronym, 0, length + 1))) {
+                forEachAcronym(query, i + 1, acronym, length + 1, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns the start and end of every word of the code, as consecutive pairs.
+     */
+    private static int[] words(CharSequence code) {
+        IntList bounds = new IntList(8);
+        int length = code.length();
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (ReferenceScorer.isTokenSeparator(c)) {
+                if (start >= 0) {
+                    bounds.add(start);
+                    bounds.add(i);
+                    start = -1;
+                }
+                continue;
+            }
+            if (start < 0) {
+                start = i;
+            } else if (isCamelBoundary(code, i)) {
+                bounds.add(start);
+                bounds.add(i);
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            bounds.add(start);
+            bounds.add(length);
+        }
+        return bounds.toArray();
+    }
+
+    /**
+     * Returns true if a new word starts at i: "connectionTimeout" splits before the T,
+     * "HTTPServer" before the S.
+     */
+    private static boolean isCamelBoundary(CharSequence code, int i) {
+        char previous = code.charAt(i - 1);
+        char c = code.charAt(i);
+        if (!Character.isUpperCase(c)) {
+            return false;
+        }
+        if (Character.isLowerCase(previous) || Character.isDigit(previous)) {
+            return true;
+        }
+        return Character.isUpperCase(previous) && i + 1 < code.length() && Character.isLowerCase(code.charAt(i + 1));
+    }
+}
@@ -0,0 +1,520 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps references on the heap as parallel primitive arrays rather than one object graph per reference.
+ * <p>
+ * The code, value and description of every row are UTF-8 bytes in one array, located by a shared offset array.
+ * Searches fold ASCII letters to lowercase while matching, so only fields with other characters keep a separate
+ * lowercase copy. Categories and sources are ids into small dictionaries, and tags are a bitset per row.
+ * {@link #get} returns a read-only {@link ReferenceItem} view that decodes fields on first access.
+ */
+final class ColumnarReferenceStore implements ReferenceStore {
+    private static final int CODE = 0;
+    private static final int VALUE = 1;
+    private static final int DESCRIPTION = 2;
+    // Lowercase copies follow the fields and are empty unless the field has non-ASCII characters
+    private static final int LOWER = 3;
+    private static final int FIELD_COUNT = 6;
+
+    // Flag bits per row: null code, value and description, null tags, then a lowercase copy per field
+    private static final int TAGS_NULL = 1 << 3;
+    private static final int LOWER_COPY_SHIFT = 4;
+
+    private final int rowCount;
+    private final byte[] text;
+    // fieldStarts[row * FIELD_COUNT + field] is the start of the field; the next start is its end
+    private final int[] fieldStarts;
+    private final byte[] flags;
+    private final String[] categories;
+    private final int[] categoryIds;
+    private final String[] sources;
+    private final int[] sourceIds;
+    private final String[] tagNames;
+    // Bits of tagNames, in tagWords longs per row
+    private final int tagWords;
+    private final long[] tagBits;
+    private final ReferenceScorer.LowercaseFields lowercaseFields = new LowercaseFields();
+
+    private ColumnarReferenceStore(Builder builder) {
+        this.rowCount = builder.rows;
+        this.text = Arrays.copyOf(builder.text, builder.textSize);
+        this.fieldStarts = builder.fieldStarts.toArray();
+        this.flags = Arrays.copyOf(builder.flags, builder.rows);
+        this.categories = builder.categories.toArray();
+        this.categoryIds = builder.categoryIds.toArray();
+        this.sources = builder.sources.toArray();
+        this.sourceIds = builder.sourceIds.toArray();
+        this.tagNames = builder.tagNames.toArray();
+        this.tagWords = (tagNames.length + 63) >>> 6;
+        this.tagBits = new long[rowCount * tagWords];
+        for (int row = 0; row < rowCount; row++) {
+            for (int tag : builder.rowTags.get(row)) {
+                tagBits[row * tagWords + (tag >>> 6)] |= 1L << tag;
+            }
+        }
+    }
+
+    static ColumnarReferenceStore of(List<ReferenceItem> items) {
+        Builder builder = new Builder();
+        for (ReferenceItem item : items) {
+            builder.add(item.getCode(), item.getValue(), item.getDescription(), item.getCategory(), item.getTags(), item.getSource());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        return HeapSize.of(text) + HeapSize.of(fieldStarts) + HeapSize.of(flags)
+                + HeapSize.of(categories) + HeapSize.of(categoryIds) + HeapSize.of(sources) + HeapSize.of(sourceIds)
+                + HeapSize.of(tagNames) + HeapSize.of(tagBits);
+    }
+
+    @Override
+    public ReferenceItem get(int id) {
+        return new RowItem(id);
+    }
+
+    @Override
+    public int score(int id, SearchQuery query) {
+        return ReferenceScorer.score(lowercaseFields, id, query);
+    }
+
+    @Override
+    public int fuzzyScore(int id, FuzzyMatcher matcher) {
+        if (isNull(id, CODE)) {
+            return -1;
+        }
+        // The matcher compares characters, so a code with non-ASCII characters is decoded first
+        CharSequence code = hasLowerCopy(id, CODE) ? lowerString(id, CODE) : new FoldedChars(start(id, CODE), length(id, CODE));
+        int distance = matcher.codeDistance(code);
+        return distance >= 0 ? ReferenceScorer.fuzzyScore(distance, codeLength(id)) : -1;
+    }
+
+    @Override
+    public int abbreviationScore(int id, String normalizedQuery) {
+        if (isNull(id, CODE)) {
+            return -1;
+        }
+        // Words are split at case changes, so this reads the original code
+        String code = string(id, CODE);
+        if (!Abbreviations.matches(normalizedQuery, code)) {
+            return -1;
+        }
+        return ReferenceScorer.abbreviationScore(code.length());
+    }
+
+    /**
+     * Returns the number of characters of the lowercase code in the given row, or 0 if it has none.
+     */
+    int codeLength(int id) {
+        if (isNull(id, CODE)) {
+            return 0;
+        }
+        if (!hasLowerCopy(id, CODE)) {
+            return length(id, CODE);
+        }
+        // Continuation bytes add nothing; four-byte sequences decode to a surrogate pair
+        int start = start(id, LOWER + CODE);
+        int end = start + length(id, LOWER + CODE);
+        int chars = 0;
+        for (int i = start; i < end; i++) {
+            byte b = text[i];
+            if ((b & 0xC0) != 0x80) {
+                chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private boolean isNull(int id, int field) {
+        return (flags[id] & (1 << field)) != 0;
+    }
+
+    private boolean hasLowerCopy(int id, int field) {
+        return (flags[id] & (1 << (LOWER_COPY_SHIFT + field))) != 0;
+    }
+
+    private int start(int id, int field) {
+        return fieldStarts[id * FIELD_COUNT + field];
+    }
+
+    private int length(int id, int field) {
+        int slot = id * FIELD_COUNT + field;
+        return fieldStarts[slot + 1] - fieldStarts[slot];
+    }
+
+    private int lowerStart(int id, int field) {
+        return start(id, hasLowerCopy(id, field) ? LOWER + field : field);
+    }
+
+    private int lowerLength(int id, int field) {
+        return length(id, hasLowerCopy(id, field) ? LOWER + field : field);
+    }
+
+    private String string(int id, int field) {
+        if (isNull(id, field)) {
+            return null;
+        }
+        return new String(text, start(id, field), length(id, field), StandardCharsets.UTF_8);
+    }
+
+    private String lowerString(int id, int field) {
+        if (isNull(id, field)) {
+            return null;
+        }
+        if (hasLowerCopy(id, field)) {
+            return new String(text, start(id, LOWER + field), length(id, LOWER + field), StandardCharsets.UTF_8);
+        }
+        int start = start(id, field);
+        char[] chars = new char[length(id, field)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) fold(text[start + i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the byte offset of the first occurrence of q in the lowercase field at or after from, or -1.
+     */
+    private int indexOf(int id, int field, byte[] q, int from) {
+        if (isNull(id, field)) {
+            return -1;
+        }
+        int start = lowerStart(id, field);
+        int last = lowerLength(id, field) - q.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < q.length; j++) {
+                if (fold(text[start + i + j]) != q[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The lowercase fields of the store for {@link ReferenceScorer#score}. Without a lowercase copy a field is
+     * matched case-insensitively in place, so only its ASCII letters may still be uppercase.
+     */
+    private final class LowercaseFields implements ReferenceScorer.LowercaseFields {
+        @Override
+        public int length(int id, int field) {
+            return isNull(id, field) ? 0 : lowerLength(id, field);
+        }
+
+        @Override
+        public int codeLength(int id) {
+            return ColumnarReferenceStore.this.codeLength(id);
+        }
+
+        @Override
+        public int indexOf(int id, int field, byte[] query, int from) {
+            return ColumnarReferenceStore.this.indexOf(id, field, query, from);
+        }
+
+        @Override
+        public int byteAt(int id, int field, int offset) {
+            return text[lowerStart(id, field) + offset];
+        }
+    }
+
+    /**
+     * Reads lowercase field bytes as characters, folding ASCII letters on the fly.
+     */
+    private final class FoldedChars implements CharSequence {
+        private final int start;
+        private final int length;
+
+        FoldedChars(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (fold(text[start + index]) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new FoldedChars(start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                builder.append(charAt(i));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A row seen as a {@link ReferenceItem}. Text fields and their lowercase forms are decoded on first access and
+     * kept; the item cannot be modified. Each {@link #get} returns a new view, so views are equal when they show the
+     * same row of the same store.
+     */
+    private final class RowItem extends ReferenceItem {
+        private final int row;
+        private String code;
+        private String value;
+        private String description;
+        private String codeLower;
+        private String valueLower;
+        private String descriptionLower;
+
+        RowItem(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public String getCode() {
+            if (code == null) {
+                code = string(row, CODE);
+            }
+            return code;
+        }
+
+        @Override
+        public String getValue() {
+            if (value == null) {
+                value = string(row, VALUE);
+            }
+            return value;
+        }
+
+        @Override
+        public String getDescription() {
+            if (description == null) {
+                description = string(row, DESCRIPTION);
+            }
+            return description;
+        }
+
+        @Override
+        public String getCategory() {
+            int category = categoryIds[row];
+            return category >= 0 ? categories[category] : null;
+        }
+
+        @Override
+        public List<String> getTags() {
+            if ((flags[row] & TAGS_NULL) != 0) {
+                return null;
+            }
+            List<String> tags = new ArrayList<>(2);
+            for (int word = 0; word < tagWords; word++) {
+                long bits = tagBits[row * tagWords + word];
+                while (bits != 0) {
+                    tags.add(tagNames[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                    bits &= bits - 1;
+                }
+            }
+            return Collections.unmodifiableList(tags);
+        }
+
+        @Override
+        public String getSource() {
+            int source = sourceIds[row];
+            return source >= 0 ? sources[source] : null;
+        }
+
+        @Override
+        public String getCodeLower() {
+            if (codeLower == null) {
+                codeLower = lowerString(row, CODE);
+            }
+            return codeLower;
+        }
+
+        @Override
+        public String getValueLower() {
+            if (valueLower == null) {
+                valueLower = lowerString(row, VALUE);
+            }
+            return valueLower;
+        }
+
+        @Override
+        public String getDescriptionLower() {
+            if (descriptionLower == null) {
+                descriptionLower = lowerString(row, DESCRIPTION);
+            }
+            return descriptionLower;
+        }
+
+        @Override
+        public void setCode(String code) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDescription(String description) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCategory(String category) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTags(List<String> tags) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSource(String source) {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Indexed references are read-only");
+        }
+
+        private ColumnarReferenceStore store() {
+            return ColumnarReferenceStore.this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RowItem)) return false;
+            RowItem other = (RowItem) o;
+            return row == other.row && store() == other.store();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store()) + row;
+        }
+    }
+
+    /**
+     * Appends rows one at a time; {@link #build} copies them into exactly sized arrays.
+     */
+    static final class Builder {
+        private byte[] text = new byte[1024];
+        private int textSize;
+        private final IntList fieldStarts = new IntList();
+        private byte[] flags = new byte[64];
+        private int rows;
+        private final Dictionary categories = new Dictionary();
+        private final IntList categoryIds = new IntList();
+        private final Dictionary sources = new Dictionary();
+        private final IntList sourceIds = new IntList();
+        private final Dictionary tagNames = new Dictionary();
+        private final List<int[]> rowTags = new ArrayList<>();
+
+        Builder add(String code, String value, String description, String category, List<String> tags, String source) {
+            if (rows == flags.length) {
+                flags = Arrays.copyOf(flags, rows * 2);
+            }
+            int rowFlags = tags == null ? TAGS_NULL : 0;
+            String[] fields = {code, value, description};
+            for (int field = 0; field < fields.length; field++) {
+                fieldStarts.add(textSize);
+                if (fields[field] == null) {
+                    rowFlags |= 1 << field;
+                } else {
+                    appendText(fields[field]);
+                }
+            }
+            for (int field = 0; field < fields.length; field++) {
+                fieldStarts.add(textSize);
+                if (fields[field] != null && !isAscii(fields[field])) {
+                    rowFlags |= 1 << (LOWER_COPY_SHIFT + field);
+                    appendText(fields[field].toLowerCase());
+                }
+            }
+            flags[rows] = (byte) rowFlags;
+
+            categoryIds.add(category != null ? categories.idOf(category) : -1);
+            sourceIds.add(source != null ? sources.idOf(source) : -1);
+            int[] tagIds = new int[tags != null ? tags.size() : 0];
+            for (int i = 0; i < tagIds.length; i++) {
+                tagIds[i] = tagNames.idOf(tags.get(i));
+            }
+            rowTags.add(tagIds);
+            rows++;
+            return this;
+        }
+
+        private void appendText(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            if (textSize + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(textSize + bytes.length, text.length * 2));
+            }
+            System.arraycopy(bytes, 0, text, textSize, bytes.length);
+            textSize += bytes.length;
+        }
+
+        ColumnarReferenceStore build() {
+            fieldStarts.add(textSize);
+            return new ColumnarReferenceStore(this);
+        }
+    }
+
+    /**
+     * Assigns dense ids to distinct strings in the order they are first seen.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String[] toArray() {
+            return values.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.Arrays;
+
+/**
+ * Finds terms within a bounded edit distance of a query, counting insertions, deletions, substitutions and
+ * transpositions of adjacent characters (optimal string alignment distance).
+ * <p>
+ * A term matches if the query is close to the whole term or to a prefix of it, so partially typed codes match too.
+ * Rows of the distance matrix are kept per term character: a sorted dictionary reuses the rows of the prefix it
+ * shares with the previous term, and skips every term with a prefix whose row already exceeds the maximum distance.
+ * This is equivalent to running a Levenshtein automaton over a trie of the terms.
+ * <p>
+ * A matcher holds mutable state and must only be used by one thread.
+ */
+public final class FuzzyMatcher {
+    public static final int MAX_DISTANCE = 2;
+
+    private final char[] query;
+    private final int maxDistance;
+
+    // rows[depth * (query.length + 1) + j] is the distance between the first j query characters and the first depth term characters
+    private int[] rows;
+    // best[depth] is the smallest distance between the query and any prefix of the first depth term characters
+    private int[] best;
+    private char[] symbols;
+
+    public FuzzyMatcher(String normalizedQuery) {
+        this.query = normalizedQuery.toCharArray();
+        this.maxDistance = maxDistanceFor(query.length);
+        int width = query.length + 1;
+        this.rows = new int[width * 32];
+        this.best = new int[32];
+        this.symbols = new char[32];
+        for (int j = 0; j < width; j++) {
+            rows[j] = j;
+        }
+        best[0] = query.length;
+    }
+
+    /**
+     * Returns the number of edits allowed for a query of the given length: none below three characters,
+     * one up to five and {@link #MAX_DISTANCE} beyond, so that short queries do not match almost everything.
+     */
+    public static int maxDistanceFor(int queryLength) {
+        if (queryLength < 3) {
+            return 0;
+        }
+        return queryLength <= 5 ? 1 : MAX_DISTANCE;
+    }
+
+    /**
+     * Returns true if the query is long enough to allow any edits.
+     */
+    public boolean isEnabled() {
+        return maxDistance > 0;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Returns the distance of the query to the code or to one of its "_", "-" or space separated tokens,
+     * or -1 if it exceeds the maximum distance.
+     */
+    public int codeDistance(CharSequence code) {
+        int length = code.length();
+        int result = distance(code, 0, length);
+        for (int i = 1; i < length && result != 0; i++) {
+            if (ReferenceScorer.isTokenSeparator(code.charAt(i - 1)) && !ReferenceScorer.isTokenSeparator(code.charAt(i))) {
+                int end = i;
+                while (end < length && !ReferenceScorer.isTokenSeparator(code.charAt(end))) {
+                    end++;
+                }
+                int tokenDistance = distance(code, i, end);
+                if (tokenDistance >= 0 && (result < 0 || tokenDistance < result)) {
+                    result = tokenDistance;
+                }
+                i = end;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance of the query to the characters between from and to, or to a prefix of them,
+     * or -1 if it exceeds the maximum distance.
+     */
+    public int distance(CharSequence term, int from, int to) {
+        int depth = 0;
+        while (from + depth < to) {
+            int rowMin = step(depth, term.charAt(from + depth));
+            depth++;
+            if (rowMin > maxDistance) {
+                break;
+            }
+        }
+        return best[depth] <= maxDistance ? best[depth] : -1;
+    }
+
+    /**
+     * Calls the consumer with the position and distance of every matching term, in order.
+     * The terms must be sorted and distinct; see {@link #commonPrefixLengths} for the second array.
+     */
+    void search(String[] terms, byte[] commonPrefixLengths, TermConsumer consumer) {
+        // Number of rows that are valid for the first characters of the previous term
+        int validDepth = 0;
+        int i = 0;
+        while (i < terms.length) {
+            String term = terms[i];
+            int depth = Math.min(validDepth, commonPrefixLengths[i] & 0xFF);
+            boolean pruned = false;
+            while (depth < term.length()) {
+                int rowMin = step(depth, term.charAt(depth));
+                depth++;
+                if (rowMin > maxDistance) {
+                    pruned = true;
+                    break;
+                }
+            }
+            validDepth = depth;
+
+            if (!pruned) {
+                if (best[depth] <= maxDistance) {
+                    consumer.accept(i, best[depth]);
+                }
+                i++;
+                continue;
+            }
+
+            // No longer term sharing these characters can get closer than the prefixes matched so far
+            int end = i + 1;
+            while (end < terms.length && (commonPrefixLengths[end] & 0xFF) >= depth) {
+                end++;
+            }
+            if (best[depth] <= maxDistance) {
+                for (int j = i; j < end; j++) {
+                    consumer.accept(j, best[depth]);
+                }
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Computes the row for term character {@code depth} and returns its minimum.
+     * Once the minimum exceeds the maximum distance, no longer prefix can come back below it.
+     */
+    private int step(int depth, char symbol) {
+        int width = query.length + 1;
+        ensureDepth(depth + 1);
+        symbols[depth] = symbol;
+
+        int previous = depth * width;
+        int current = previous + width;
+        int beforePrevious = previous - width;
+        rows[current] = depth + 1;
+        int rowMin = depth + 1;
+        for (int j = 1; j < width; j++) {
+            int cost = query[j - 1] == symbol ? 0 : 1;
+            int value = Math.min(Math.min(rows[previous + j], rows[current + j - 1]) + 1, rows[previous + j - 1] + cost);
+            if (depth > 0 && j > 1 && symbol == query[j - 2] && symbols[depth - 1] == query[j - 1]) {
+                value = Math.min(value, rows[beforePrevious + j - 2] + 1);
+            }
+            rows[current + j] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+        best[depth + 1] = Math.min(best[depth], rows[current + query.length]);
+        return rowMin;
+    }
+
+    private void ensureDepth(int depth) {
+        if (depth < best.length) {
+            return;
+        }
+        int capacity = Math.max(depth + 1, best.length << 1);
+        rows = Arrays.copyOf(rows, capacity * (query.length + 1));
+        best = Arrays.copyOf(best, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+    }
+
+    /**
+     * Returns, for each sorted term, the length of the prefix it shares with the previous term, capped at 255.
+     * The search reads these bytes instead of the terms to find where a shared prefix ends.
+     */
+    static byte[] commonPrefixLengths(String[] terms) {
+        byte[] lengths = new byte[terms.length];
+        for (int i = 1; i < terms.length; i++) {
+            String previous = terms[i - 1];
+            String term = terms[i];
+            int max = Math.min(255, Math.min(previous.length(), term.length()));
+            int length = 0;
+            while (length < max && previous.charAt(length) == term.charAt(length)) {
+                length++;
+            }
+            lengths[i] = (byte) length;
+        }
+        return lengths;
+    }
+
+    interface TermConsumer {
+        void accept(int term, int distance);
+    }
+}
@@ -0,0 +1,79 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Rough heap sizes of the structures an index is built from, assuming a 64-bit JVM with compressed references
+ * and compact strings. Good enough to compare stages and datasets, not to account for every byte.
+ */
+final class HeapSize {
+    private static final long OBJECT_HEADER = 16;
+    private static final long ARRAY_HEADER = 16;
+    private static final long REFERENCE = 4;
+    // HashMap node plus its table slot
+    private static final long MAP_ENTRY = 36;
+
+    private HeapSize() {
+    }
+
+    static long of(byte[] array) {
+        return array != null ? ARRAY_HEADER + array.length : 0;
+    }
+
+    static long of(int[] array) {
+        return array != null ? ARRAY_HEADER + 4L * array.length : 0;
+    }
+
+    static long of(long[] array) {
+        return array != null ? ARRAY_HEADER + 8L * array.length : 0;
+    }
+
+    static long of(String[] array) {
+        if (array == null) {
+            return 0;
+        }
+        long size = ARRAY_HEADER + REFERENCE * array.length;
+        for (String string : array) {
+            size += of(string);
+        }
+        return size;
+    }
+
+    static long of(String string) {
+        return string != null ? OBJECT_HEADER + 8 + ARRAY_HEADER + string.length() : 0;
+    }
+
+    /**
+     * Returns the size of a hash set of strings.
+     */
+    static long ofStrings(Collection<String> strings) {
+        long size = OBJECT_HEADER * 2 + ARRAY_HEADER;
+        for (String string : strings) {
+            size += MAP_ENTRY + of(string);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size of a hash map from strings to id arrays.
+     */
+    static long ofPostings(Map<String, int[]> postings) {
+        long size = OBJECT_HEADER + ARRAY_HEADER;
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            size += MAP_ENTRY + of(entry.getKey()) + of(entry.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size of a hash map from boxed longs to id arrays.
+     */
+    static long ofLongPostings(Map<Long, int[]> postings) {
+        long size = OBJECT_HEADER + ARRAY_HEADER;
+        for (int[] ids : postings.values()) {
+            size += MAP_ENTRY + OBJECT_HEADER + of(ids);
+        }
+        return size;
+    }
+}
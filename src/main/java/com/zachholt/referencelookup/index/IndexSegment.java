@@ -0,0 +1,350 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The references of one source file together with the indexes built over them.
+ * Ids are local to the segment; {@link ReferenceIndex} offsets them into one id space.
+ * Segments are immutable and shared between snapshots, so replacing one source leaves the others untouched.
+ */
+final class IndexSegment {
+    private static final Pattern CODE_SPLIT_PATTERN = Pattern.compile("[\\s_-]");
+
+    // Path of the source file, or null for references not tied to one
+    private final String source;
+    private final ReferenceStore store;
+    private final List<ReferenceItem> items;
+    // Lowercase code, value and code token to the sorted ids of the items that have it
+    private final Map<String, int[]> codeIndex;
+    private final TrigramIndex trigramIndex;
+    // Acronym of the code to the sorted ids of the items with that acronym
+    private final Map<String, int[]> acronymIndex;
+    // Every proper prefix of an acronym, so lookups stop extending acronyms that lead nowhere
+    private final Set<String> acronymPrefixes;
+    private final int maxAcronymLength;
+    // Built on the first fuzzy or multi-word search, as most searches never need it
+    private volatile TermDictionary termDictionary;
+
+    private IndexSegment(String source, ReferenceStore store, List<ReferenceItem> items,
+                         Map<String, int[]> codeIndex, TrigramIndex trigramIndex) {
+        this.source = source;
+        this.store = store;
+        this.items = items;
+        this.codeIndex = codeIndex;
+        this.trigramIndex = trigramIndex;
+        this.acronymIndex = store instanceof MappedReferenceStore ? Collections.emptyMap() : buildAcronymIndex(items);
+        this.acronymPrefixes = new HashSet<>();
+        int maxLength = 0;
+        for (String acronym : acronymIndex.keySet()) {
+            maxLength = Math.max(maxLength, acronym.length());
+            for (int length = 1; length < acronym.length(); length++) {
+                acronymPrefixes.add(acronym.substring(0, length));
+            }
+        }
+        this.maxAcronymLength = maxLength;
+    }
+
+    /**
+     * Wraps a mapped store. Items are materialized on access and there is no exact-match code or acronym index,
+     * so heap use does not depend on the number of references.
+     */
+    static IndexSegment mapped(MappedReferenceStore store) {
+        return new IndexSegment(null, store, new StoreView(store), Collections.emptyMap(), store.getTrigramIndex());
+    }
+
+    /**
+     * Copies the items into a {@link ColumnarReferenceStore} and indexes them. The items are not retained.
+     */
+    static IndexSegment build(String source, List<ReferenceItem> items) {
+        Map<String, IntList> codeIndex = new HashMap<>();
+        TrigramIndex.Builder trigrams = TrigramIndex.builder();
+
+        for (int id = 0; id < items.size(); id++) {
+            ReferenceItem item = items.get(id);
+            trigrams.add(id, item.getCodeLower())
+                    .add(id, item.getValueLower())
+                    .add(id, item.getDescriptionLower());
+
+            String codeLower = item.getCodeLower();
+            if (codeLower == null) {
+                continue;
+            }
+
+            addPosting(codeIndex, codeLower, id);
+
+            String valueLower = item.getValueLower();
+            if (valueLower != null && !valueLower.isEmpty()) {
+                addPosting(codeIndex, valueLower, id);
+            }
+
+            String[] parts = CODE_SPLIT_PATTERN.split(codeLower);
+            for (String part : parts) {
+                if (!part.isEmpty()) {
+                    addPosting(codeIndex, part, id);
+                }
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(codeIndex.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : codeIndex.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(items);
+        return new IndexSegment(source, store, new StoreView(store), postings, trigrams.build());
+    }
+
+    /**
+     * Indexes the items by the acronym of their code. This takes a single pass over the codes,
+     * so it is rebuilt rather than cached on disk.
+     */
+    private static Map<String, int[]> buildAcronymIndex(List<ReferenceItem> items) {
+        Map<String, IntList> ids = new HashMap<>();
+        for (int id = 0; id < items.size(); id++) {
+            String code = items.get(id).getCode();
+            String acronym = code != null ? Abbreviations.acronym(code) : null;
+            if (acronym != null) {
+                ids.computeIfAbsent(acronym, k -> new IntList(1)).add(id);
+            }
+        }
+        Map<String, int[]> acronymIndex = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : ids.entrySet()) {
+            acronymIndex.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return acronymIndex;
+    }
+
+    private static void addPosting(Map<String, IntList> codeIndex, String key, int id) {
+        IntList ids = codeIndex.computeIfAbsent(key, k -> new IntList(1));
+        // Code, value and tokens of one item can share a key; ids arrive in order so the tail check dedupes
+        if (ids.last() != id) {
+            ids.add(id);
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        IndexIO.writeString(out, source);
+        out.writeInt(items.size());
+        for (ReferenceItem item : items) {
+            IndexIO.writeString(out, item.getCode());
+            IndexIO.writeString(out, item.getValue());
+            IndexIO.writeString(out, item.getDescription());
+            IndexIO.writeString(out, item.getCategory());
+            IndexIO.writeStrings(out, item.getTags());
+        }
+
+        out.writeInt(codeIndex.size());
+        for (Map.Entry<String, int[]> entry : codeIndex.entrySet()) {
+            IndexIO.writeString(out, entry.getKey());
+            int[] ids = entry.getValue();
+            out.writeInt(ids.length);
+            for (int id : ids) {
+                out.writeInt(id);
+            }
+        }
+
+        trigramIndex.writeTo(out);
+    }
+
+    static IndexSegment readFrom(DataInput in) throws IOException {
+        String source = IndexIO.readString(in);
+        int itemCount = in.readInt();
+        ColumnarReferenceStore.Builder rows = new ColumnarReferenceStore.Builder();
+        for (int i = 0; i < itemCount; i++) {
+            String code = IndexIO.readString(in);
+            String value = IndexIO.readString(in);
+            String description = IndexIO.readString(in);
+            String category = IndexIO.readString(in);
+            List<String> tags = IndexIO.readStrings(in);
+            rows.add(code, value, description, category, tags, source);
+        }
+
+        int keyCount = in.readInt();
+        Map<String, int[]> codeIndex = new HashMap<>(keyCount * 4 / 3 + 1);
+        for (int i = 0; i < keyCount; i++) {
+            String key = IndexIO.readString(in);
+            int[] ids = new int[in.readInt()];
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = in.readInt();
+            }
+            codeIndex.put(key, ids);
+        }
+
+        TrigramIndex trigramIndex = TrigramIndex.readFrom(in);
+        ColumnarReferenceStore store = rows.build();
+        return new IndexSegment(source, store, new StoreView(store), codeIndex, trigramIndex);
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    boolean isMapped() {
+        return store instanceof MappedReferenceStore;
+    }
+
+    ReferenceStore getStore() {
+        return store;
+    }
+
+    List<ReferenceItem> getItems() {
+        return items;
+    }
+
+    // Sorted local ids, or null if no item has the key
+    int[] getExactMatches(String key) {
+        return codeIndex.get(key);
+    }
+
+    TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    /**
+     * Returns a rough estimate of the heap used by the rows and every index built so far.
+     */
+    long estimateHeapBytes() {
+        TermDictionary dictionary = termDictionary;
+        return store.estimateHeapBytes() + HeapSize.ofPostings(codeIndex) + trigramIndex.estimateHeapBytes()
+                + HeapSize.ofPostings(acronymIndex) + HeapSize.ofStrings(acronymPrefixes)
+                + (dictionary != null ? dictionary.estimateHeapBytes() : 0);
+    }
+
+    /**
+     * Calls the consumer with the local id and score of every item whose code the query abbreviates, in id order;
+     * see {@link Abbreviations}. Heap segments look the query up in the acronym index; mapped segments check every row.
+     */
+    void abbreviationMatches(String normalizedQuery, ReferenceIndex.HitConsumer consumer) {
+        if (isMapped()) {
+            for (int id = 0; id < store.size(); id++) {
+                int score = store.abbreviationScore(id, normalizedQuery);
+                if (score >= 0) {
+                    consumer.accept(id, score);
+                }
+            }
+            return;
+        }
+        if (maxAcronymLength < 2) {
+            return;
+        }
+
+        IntList candidates = new IntList();
+        Abbreviations.forEachAcronym(normalizedQuery, maxAcronymLength, acronym -> {
+            int[] ids = acronymIndex.get(acronym);
+            if (ids != null) {
+                for (int id : ids) {
+                    candidates.add(id);
+                }
+            }
+            return acronymPrefixes.contains(acronym);
+        });
+        // Repeated letters can spell the same acronym twice
+        int[] sorted = candidates.toArray();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            int id = sorted[i];
+            if (i == 0 || sorted[i - 1] != id) {
+                int score = store.abbreviationScore(id, normalizedQuery);
+                if (score >= 0) {
+                    consumer.accept(id, score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer with the local id and score of every item that has all the words, in id order.
+     * Each word but the last must be a code, value or code token; the last one may be partially typed
+     * and only needs to start a code token. Mapped segments have no code index and match nothing.
+     */
+    void wordMatches(String[] words, ReferenceIndex.HitConsumer consumer) {
+        if (isMapped()) {
+            return;
+        }
+        int last = words.length - 1;
+        int[][] postings = new int[words.length][];
+        for (int i = 0; i < last; i++) {
+            postings[i] = codeIndex.get(words[i]);
+            if (postings[i] == null) {
+                return;
+            }
+        }
+        postings[last] = getTermDictionary().idsWithPrefix(words[last], items.size());
+
+        // Intersecting the shortest lists first keeps every intermediate result small
+        Arrays.sort(postings, Comparator.comparingInt(ids -> ids.length));
+        int[] ids = postings[0];
+        for (int i = 1; i < postings.length && ids.length > 0; i++) {
+            ids = IntSets.intersect(ids, postings[i]);
+        }
+        ColumnarReferenceStore columns = (ColumnarReferenceStore) store;
+        for (int id : ids) {
+            consumer.accept(id, ReferenceScorer.wordsScore(columns.codeLength(id)));
+        }
+    }
+
+    /**
+     * Calls the consumer with the local id and score of every item matching the query within its edit distance,
+     * in id order. Heap segments search their term dictionary; mapped segments keep no dictionary on the heap
+     * and check every row instead.
+     */
+    void fuzzyMatches(FuzzyMatcher matcher, ReferenceIndex.HitConsumer consumer) {
+        if (isMapped()) {
+            for (int id = 0; id < store.size(); id++) {
+                int score = store.fuzzyScore(id, matcher);
+                if (score >= 0) {
+                    consumer.accept(id, score);
+                }
+            }
+            return;
+        }
+        getTermDictionary().search(matcher, (id, distance) ->
+            consumer.accept(id, ReferenceScorer.fuzzyScore(distance, ((ColumnarReferenceStore) store).codeLength(id))));
+    }
+
+    private TermDictionary getTermDictionary() {
+        TermDictionary dictionary = termDictionary;
+        if (dictionary == null) {
+            synchronized (this) {
+                dictionary = termDictionary;
+                if (dictionary == null) {
+                    dictionary = TermDictionary.build(items);
+                    termDictionary = dictionary;
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    private static final class StoreView extends AbstractList<ReferenceItem> implements RandomAccess {
+        private final ReferenceStore store;
+
+        StoreView(ReferenceStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public ReferenceItem get(int index) {
+            return store.get(index);
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
+}
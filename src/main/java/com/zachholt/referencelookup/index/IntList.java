@@ -0,0 +1,49 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used while building posting lists to avoid boxing.
+ */
+public final class IntList {
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(int initialCapacity) {
+        this.data = new int[Math.max(1, initialCapacity)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length << 1);
+        }
+        data[size++] = value;
+    }
+
+    public int get(int index) {
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the last element, or -1 if the list is empty.
+     */
+    public int last() {
+        return size == 0 ? -1 : data[size - 1];
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,120 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of distinct ids, as stored in posting lists.
+ */
+final class IntSets {
+    private static final int[] EMPTY = new int[0];
+
+    private IntSets() {
+    }
+
+    /**
+     * Returns the ids present in both arrays. When one array is much smaller, each of its ids is found in the
+     * other by galloping search, so the cost depends on the smaller array.
+     */
+    static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a.length == 0) {
+            return EMPTY;
+        }
+        int[] result = new int[a.length];
+        int size = 0;
+        if (a.length * 16 < b.length) {
+            int from = 0;
+            for (int id : a) {
+                from = gallop(b, from, id);
+                if (from == b.length) {
+                    break;
+                }
+                if (b[from] == id) {
+                    result[size++] = id;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[size++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Returns the distinct ids between from and to, which hold several sorted lists of ids below {@code universe}
+     * back to back. Dense unions are collected in a bitset and sparse ones by sorting a copy, much like the
+     * containers of a roaring bitmap.
+     */
+    static int[] union(int[] lists, int from, int to, int universe) {
+        int total = to - from;
+        if (total == 0) {
+            return EMPTY;
+        }
+
+        // A bitset costs one bit per id in the universe, a sorted copy 32 bits per id
+        if ((long) total * 32 >= universe) {
+            long[] bits = new long[(universe + 63) >>> 6];
+            for (int i = from; i < to; i++) {
+                bits[lists[i] >>> 6] |= 1L << lists[i];
+            }
+            IntList result = new IntList(Math.min(total, universe));
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    result.add((word << 6) + Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            return result.toArray();
+        }
+
+        int[] all = Arrays.copyOfRange(lists, from, to);
+        Arrays.sort(all);
+        int distinct = 1;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] != all[distinct - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        return distinct == all.length ? all : Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Returns the position of the first element at or after from that is not less than id.
+     */
+    private static int gallop(int[] sorted, int from, int id) {
+        int step = 1;
+        int high = from;
+        while (high < sorted.length && sorted[high] < id) {
+            from = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int low = from;
+        high = Math.min(high, sorted.length);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,432 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores references and their trigram postings in a compact binary file that is memory-mapped,
+ * so the heap does not grow with the dataset. Searches score rows directly on the mapped UTF-8 bytes
+ * and {@link ReferenceItem}s are only created for rows that are actually returned.
+ * <p>
+ * Layout (big-endian, offsets relative to the start of the store):
+ * <pre>
+ * string data       UTF-8 bytes of every field of every row, back to back
+ * field starts      int[rows * FIELD_COUNT + 1], start of each field; the next start is its end
+ * null masks        byte[rows], bit f set if field f is null
+ * trigram keys      long[grams], sorted
+ * posting starts    int[grams + 1]
+ * postings          int[], sorted ids per trigram
+ * source ids        int[rows], position in the source table or -1
+ * source table      int count, then per source an int length and its UTF-8 bytes
+ * footer            int rows, grams, fieldStarts, nullMasks, keys, postingStarts, postings, sourceIds, sources, MAGIC
+ * </pre>
+ * A single mapping is limited to 2 GB, which bounds the size of the store.
+ */
+public final class MappedReferenceStore implements ReferenceStore {
+    private static final int MAGIC = 0x524D5354; // "RMST"
+    private static final int FOOTER_INTS = 10;
+    private static final int FOOTER_SIZE = FOOTER_INTS * Integer.BYTES;
+
+    private static final int CODE = 0;
+    private static final int VALUE = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int CATEGORY = 3;
+    private static final int TAGS = 4;
+    private static final int CODE_LOWER = 5;
+    private static final int VALUE_LOWER = 6;
+    private static final int DESCRIPTION_LOWER = 7;
+    private static final int FIELD_COUNT = 8;
+
+    private static final char TAG_SEPARATOR = '\n';
+
+    private final ByteBuffer data;
+    private final IntBuffer fieldStarts;
+    private final int nullMasksOffset;
+    private final int rowCount;
+    private final TrigramIndex trigramIndex;
+    private final IntBuffer sourceIds;
+    // One entry per source file, so the table is kept on the heap
+    private final String[] sources;
+    private final ReferenceScorer.LowercaseFields lowercaseFields = new LowercaseFields();
+
+    private MappedReferenceStore(ByteBuffer data, int rowCount, IntBuffer fieldStarts, int nullMasksOffset,
+                                 TrigramIndex trigramIndex, IntBuffer sourceIds, String[] sources) {
+        this.data = data;
+        this.rowCount = rowCount;
+        this.fieldStarts = fieldStarts;
+        this.nullMasksOffset = nullMasksOffset;
+        this.trigramIndex = trigramIndex;
+        this.sourceIds = sourceIds;
+        this.sources = sources;
+    }
+
+    /**
+     * Maps a store previously written by {@link #write} at the given region of the channel.
+     */
+    public static MappedReferenceStore map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE || size < FOOTER_SIZE) {
+            throw new IOException("Invalid mapped reference store size: " + size);
+        }
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+
+        IntBuffer footer = data.slice((int) size - FOOTER_SIZE, FOOTER_SIZE).asIntBuffer();
+        if (footer.get(FOOTER_INTS - 1) != MAGIC) {
+            throw new IOException("Not a mapped reference store");
+        }
+        int rows = footer.get(0);
+        int grams = footer.get(1);
+        int fieldStartsOffset = footer.get(2);
+        int nullMasksOffset = footer.get(3);
+        int keysOffset = footer.get(4);
+        int postingStartsOffset = footer.get(5);
+        int postingsOffset = footer.get(6);
+        int sourceIdsOffset = footer.get(7);
+        int sourcesOffset = footer.get(8);
+
+        IntBuffer fieldStarts = data.slice(fieldStartsOffset, (rows * FIELD_COUNT + 1) * Integer.BYTES).asIntBuffer();
+        IntBuffer postingStarts = data.slice(postingStartsOffset, (grams + 1) * Integer.BYTES).asIntBuffer();
+        TrigramIndex trigrams = TrigramIndex.mapped(
+            data.slice(keysOffset, grams * Long.BYTES).asLongBuffer(),
+            postingStarts,
+            data.slice(postingsOffset, postingStarts.get(grams) * Integer.BYTES).asIntBuffer()
+        );
+        IntBuffer sourceIds = data.slice(sourceIdsOffset, rows * Integer.BYTES).asIntBuffer();
+        ByteBuffer sourceTable = data.slice(sourcesOffset, (int) size - FOOTER_SIZE - sourcesOffset);
+        String[] sources = new String[sourceTable.getInt()];
+        for (int i = 0; i < sources.length; i++) {
+            byte[] bytes = new byte[sourceTable.getInt()];
+            sourceTable.get(bytes);
+            sources[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new MappedReferenceStore(data, rows, fieldStarts, nullMasksOffset, trigrams, sourceIds, sources);
+    }
+
+    /**
+     * Writes the items and their trigram postings in the layout read by {@link #map}.
+     */
+    public static void write(List<ReferenceItem> items, DataOutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        for (ReferenceItem item : items) {
+            writer.add(item);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Writes a store one item at a time, so items can be streamed from a parser without being collected first.
+     * Field strings go straight to the output; only the per-row offsets and the trigram postings are buffered.
+     */
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final int base;
+        private final IntList starts = new IntList();
+        private final ByteList nullMasks = new ByteList();
+        private final IntList sourceIds = new IntList();
+        private final Map<String, Integer> sources = new LinkedHashMap<>();
+        private final TrigramIndex.Builder trigrams = TrigramIndex.builder();
+        private final String[] fields = new String[FIELD_COUNT];
+        private int rows;
+
+        public Writer(DataOutputStream out) {
+            this.out = out;
+            this.base = out.size();
+        }
+
+        public void add(ReferenceItem item) throws IOException {
+            int id = rows++;
+            fields[CODE] = item.getCode();
+            fields[VALUE] = item.getValue();
+            fields[DESCRIPTION] = item.getDescription();
+            fields[CATEGORY] = item.getCategory();
+            fields[TAGS] = item.getTags() != null ? String.join(String.valueOf(TAG_SEPARATOR), item.getTags()) : null;
+            fields[CODE_LOWER] = item.getCodeLower();
+            fields[VALUE_LOWER] = item.getValueLower();
+            fields[DESCRIPTION_LOWER] = item.getDescriptionLower();
+
+            byte nullMask = 0;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                starts.add(position(out, base));
+                if (fields[field] == null) {
+                    nullMask |= (byte) (1 << field);
+                } else {
+                    out.write(fields[field].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            nullMasks.add(nullMask);
+
+            String source = item.getSource();
+            sourceIds.add(source != null ? sources.computeIfAbsent(source, s -> sources.size()) : -1);
+
+            trigrams.add(id, fields[CODE_LOWER])
+                    .add(id, fields[VALUE_LOWER])
+                    .add(id, fields[DESCRIPTION_LOWER]);
+        }
+
+        /**
+         * Writes the offsets, indexes and footer. No items can be added afterwards.
+         */
+        public void finish() throws IOException {
+            starts.add(position(out, base));
+
+            int fieldStartsOffset = position(out, base);
+            for (int i = 0; i < starts.size(); i++) {
+                out.writeInt(starts.get(i));
+            }
+
+            int nullMasksOffset = position(out, base);
+            nullMasks.writeTo(out);
+
+            TrigramIndex trigramIndex = trigrams.build();
+            long[] keys = trigramIndex.sortedKeys();
+            int keysOffset = position(out, base);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+            int postingStartsOffset = position(out, base);
+            int postingStart = 0;
+            for (long key : keys) {
+                out.writeInt(postingStart);
+                postingStart += trigramIndex.postingsFor(key).length;
+            }
+            out.writeInt(postingStart);
+            int postingsOffset = position(out, base);
+            for (long key : keys) {
+                for (int id : trigramIndex.postingsFor(key)) {
+                    out.writeInt(id);
+                }
+            }
+
+            int sourceIdsOffset = position(out, base);
+            for (int i = 0; i < sourceIds.size(); i++) {
+                out.writeInt(sourceIds.get(i));
+            }
+            int sourcesOffset = position(out, base);
+            out.writeInt(sources.size());
+            for (String source : sources.keySet()) {
+                byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(rows);
+            out.writeInt(keys.length);
+            out.writeInt(fieldStartsOffset);
+            out.writeInt(nullMasksOffset);
+            out.writeInt(keysOffset);
+            out.writeInt(postingStartsOffset);
+            out.writeInt(postingsOffset);
+            out.writeInt(sourceIdsOffset);
+            out.writeInt(sourcesOffset);
+            out.writeInt(MAGIC);
+            position(out, base);
+        }
+    }
+
+    private static final class ByteList {
+        private byte[] values = new byte[64];
+        private int size;
+
+        void add(byte value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.write(values, 0, size);
+        }
+    }
+
+    private static int position(DataOutputStream out, int base) throws IOException {
+        // DataOutputStream.size() saturates at Integer.MAX_VALUE, which is also the mapping limit
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("Reference data exceeds the 2 GB limit of mapped storage");
+        }
+        return out.size() - base;
+    }
+
+    public TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public long estimateHeapBytes() {
+        // Rows and postings stay in the mapped file
+        return HeapSize.of(sources);
+    }
+
+    @Override
+    public ReferenceItem get(int id) {
+        String tags = string(id, TAGS);
+        List<String> tagList = tags == null ? null
+            : tags.isEmpty() ? Collections.emptyList()
+            : Arrays.asList(tags.split(String.valueOf(TAG_SEPARATOR)));
+        ReferenceItem item = new ReferenceItem(string(id, CODE), string(id, VALUE), string(id, DESCRIPTION), string(id, CATEGORY), tagList);
+        int source = sourceIds.get(id);
+        if (source >= 0) {
+            item.setSource(sources[source]);
+        }
+        return item;
+    }
+
+    @Override
+    public int score(int id, SearchQuery query) {
+        return ReferenceScorer.score(lowercaseFields, id, query);
+    }
+
+    @Override
+    public int fuzzyScore(int id, FuzzyMatcher matcher) {
+        if (isNull(id, CODE_LOWER)) {
+            return -1;
+        }
+        int length = length(id, CODE_LOWER);
+        int distance = matcher.codeDistance(new ByteChars(fieldStarts.get(id * FIELD_COUNT + CODE_LOWER), length));
+        return distance >= 0 ? ReferenceScorer.fuzzyScore(distance, charLength(id, CODE_LOWER)) : -1;
+    }
+
+    @Override
+    public int abbreviationScore(int id, String normalizedQuery) {
+        if (isNull(id, CODE)) {
+            return -1;
+        }
+        int length = length(id, CODE);
+        if (!Abbreviations.matches(normalizedQuery, new ByteChars(fieldStarts.get(id * FIELD_COUNT + CODE), length))) {
+            return -1;
+        }
+        return ReferenceScorer.abbreviationScore(charLength(id, CODE));
+    }
+
+    private boolean isNull(int id, int field) {
+        return (data.get(nullMasksOffset + id) & (1 << field)) != 0;
+    }
+
+    private int length(int id, int field) {
+        int slot = id * FIELD_COUNT + field;
+        return fieldStarts.get(slot + 1) - fieldStarts.get(slot);
+    }
+
+    /**
+     * Returns the length of the field in UTF-16 characters, as {@link String#length} returns for its text.
+     */
+    private int charLength(int id, int field) {
+        int start = fieldStarts.get(id * FIELD_COUNT + field);
+        int end = start + length(id, field);
+        int chars = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data.get(i);
+            if ((b & 0xC0) != 0x80) {
+                // Continuation bytes add nothing; four-byte sequences decode to a surrogate pair
+                chars += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    private String string(int id, int field) {
+        if (isNull(id, field)) {
+            return null;
+        }
+        byte[] bytes = new byte[length(id, field)];
+        data.get(fieldStarts.get(id * FIELD_COUNT + field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the byte offset of the first occurrence of q in the field at or after from, or -1.
+     */
+    private int indexOf(int id, int field, byte[] q, int from) {
+        if (isNull(id, field)) {
+            return -1;
+        }
+        int start = fieldStarts.get(id * FIELD_COUNT + field);
+        int last = length(id, field) - q.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < q.length; j++) {
+                if (data.get(start + i + j) != q[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The lowercase copies of the code, value and description for {@link ReferenceScorer#score}.
+     */
+    private final class LowercaseFields implements ReferenceScorer.LowercaseFields {
+        @Override
+        public int length(int id, int field) {
+            return isNull(id, CODE_LOWER + field) ? 0 : MappedReferenceStore.this.length(id, CODE_LOWER + field);
+        }
+
+        @Override
+        public int codeLength(int id) {
+            return isNull(id, CODE_LOWER) ? 0 : charLength(id, CODE_LOWER);
+        }
+
+        @Override
+        public int indexOf(int id, int field, byte[] query, int from) {
+            return MappedReferenceStore.this.indexOf(id, CODE_LOWER + field, query, from);
+        }
+
+        @Override
+        public int byteAt(int id, int field, int offset) {
+            return data.get(fieldStarts.get(id * FIELD_COUNT + CODE_LOWER + field) + offset);
+        }
+    }
+
+    /**
+     * Reads a field byte by byte as characters without decoding it. This is exact for ASCII codes;
+     * for other characters fuzzy distances count UTF-8 bytes rather than characters.
+     */
+    private final class ByteChars implements CharSequence {
+        private final int start;
+        private final int length;
+
+        ByteChars(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new ByteChars(start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            data.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
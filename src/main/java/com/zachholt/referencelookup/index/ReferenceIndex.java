@@ -0,0 +1,346 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable snapshot of the loaded references together with every index built over them.
+ * <p>
+ * A (re)load builds a complete new snapshot off to the side and publishes it in a single swap,
+ * so searches never block on a load and a snapshot stays valid for as long as a caller holds it.
+ * Item ids are positions in {@link #getItems()}. Rows live in a {@link ReferenceStore}, either in columnar
+ * arrays on the heap or in a {@link MappedReferenceStore}.
+ * <p>
+ * References are indexed in one segment per source file. {@link #withSource} replaces a single segment and
+ * shares all others with the previous snapshot, so the cost of a change depends on the size of the changed file
+ * rather than on the total number of references.
+ */
+public final class ReferenceIndex {
+    public static final ReferenceIndex EMPTY = build(Collections.emptyList(), 0);
+
+    private final long generation;
+    private final List<IndexSegment> segments;
+    // starts[i] is the global id of the first item of segment i; the last entry is the total size
+    private final int[] starts;
+    private final List<ReferenceItem> items;
+
+    private ReferenceIndex(long generation, List<IndexSegment> segments) {
+        this.generation = generation;
+        this.segments = Collections.unmodifiableList(segments);
+        this.starts = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            starts[i + 1] = starts[i] + segments.get(i).getStore().size();
+        }
+        this.items = segments.size() == 1 ? segments.get(0).getItems() : new ItemsView();
+    }
+
+    /**
+     * Wraps a mapped store. Items are materialized on access and there is no exact-match code index,
+     * so heap use does not depend on the number of references.
+     */
+    public static ReferenceIndex mapped(MappedReferenceStore store, long generation) {
+        return new ReferenceIndex(generation, List.of(IndexSegment.mapped(store)));
+    }
+
+    /**
+     * Indexes the items, starting a new segment wherever the source of consecutive items changes.
+     */
+    public static ReferenceIndex build(List<ReferenceItem> items, long generation) {
+        List<IndexSegment> segments = new ArrayList<>();
+        int from = 0;
+        for (int i = 1; i <= items.size(); i++) {
+            if (i == items.size() || !Objects.equals(items.get(i).getSource(), items.get(from).getSource())) {
+                segments.add(IndexSegment.build(items.get(from).getSource(), items.subList(from, i)));
+                from = i;
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(IndexSegment.build(null, Collections.emptyList()));
+        }
+        return new ReferenceIndex(generation, segments);
+    }
+
+    /**
+     * Returns a snapshot in which the items of the given source are replaced. Empty items remove the source,
+     * and an unknown source is added in path order. Only the segment of that source is indexed again.
+     */
+    public ReferenceIndex withSource(String source, List<ReferenceItem> sourceItems, long newGeneration) {
+        if (isMapped()) {
+            throw new IllegalStateException("Mapped indexes are rebuilt as a whole");
+        }
+        List<IndexSegment> updated = new ArrayList<>(segments.size() + 1);
+        boolean placed = false;
+        for (IndexSegment segment : segments) {
+            String segmentSource = segment.getSource();
+            if (segment.getStore().size() == 0 && segmentSource == null) {
+                continue;
+            }
+            if (!placed && segmentSource != null && segmentSource.compareTo(source) >= 0) {
+                if (!sourceItems.isEmpty()) {
+                    updated.add(IndexSegment.build(source, sourceItems));
+                }
+                placed = true;
+                if (segmentSource.equals(source)) {
+                    continue;
+                }
+            }
+            updated.add(segment);
+        }
+        if (!placed && !sourceItems.isEmpty()) {
+            updated.add(IndexSegment.build(source, sourceItems));
+        }
+        if (updated.isEmpty()) {
+            updated.add(IndexSegment.build(null, Collections.emptyList()));
+        }
+        return new ReferenceIndex(newGeneration, updated);
+    }
+
+    /**
+     * Writes the items and all prebuilt indexes, so {@link #readFrom} can restore the snapshot without re-indexing.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        if (isMapped()) {
+            throw new IllegalStateException("Mapped indexes are persisted by MappedReferenceStore");
+        }
+        out.writeInt(segments.size());
+        for (IndexSegment segment : segments) {
+            segment.writeTo(out);
+        }
+    }
+
+    public static ReferenceIndex readFrom(DataInput in, long generation) throws IOException {
+        int segmentCount = in.readInt();
+        List<IndexSegment> segments = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(IndexSegment.readFrom(in));
+        }
+        return new ReferenceIndex(generation, segments);
+    }
+
+    /**
+     * Identifies this snapshot; every load publishes a snapshot with a higher generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean isMapped() {
+        return segments.size() == 1 && segments.get(0).isMapped();
+    }
+
+    /**
+     * Returns the source files of the indexed references, in id order.
+     */
+    public List<String> getSources() {
+        List<String> sources = new ArrayList<>(segments.size());
+        for (IndexSegment segment : segments) {
+            if (segment.getSource() != null) {
+                sources.add(segment.getSource());
+            }
+        }
+        return sources;
+    }
+
+    public int size() {
+        return starts[segments.size()];
+    }
+
+    /**
+     * Returns a rough estimate of the heap used by the references and their indexes. Segments shared with other
+     * snapshots are counted in each of them; mapped memory is not counted.
+     */
+    public long estimateHeapBytes() {
+        long bytes = 0;
+        for (IndexSegment segment : segments) {
+            bytes += segment.estimateHeapBytes();
+        }
+        return bytes;
+    }
+
+    public ReferenceItem get(int id) {
+        int segment = segmentOf(id);
+        return segments.get(segment).getStore().get(id - starts[segment]);
+    }
+
+    public int score(int id, SearchQuery query) {
+        int segment = segmentOf(id);
+        return segments.get(segment).getStore().score(id - starts[segment], query);
+    }
+
+    /**
+     * Calls the consumer with the id and score of every item that has all the "_", "-" or space separated words
+     * of the query, in any order, like HTTP_NOT_FOUND for "not found http"; see {@link IndexSegment#wordMatches}.
+     * Queries of a single word match nothing.
+     */
+    public void wordMatches(SearchQuery query, HitConsumer consumer) {
+        String[] words = words(query.getText());
+        if (words.length < 2) {
+            return;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            int start = starts[i];
+            segments.get(i).wordMatches(words, (id, score) -> consumer.accept(start + id, score));
+        }
+    }
+
+    private static String[] words(String normalizedQuery) {
+        List<String> words = new ArrayList<>();
+        int length = normalizedQuery.length();
+        for (int start = 0; start < length; start++) {
+            if (ReferenceScorer.isTokenSeparator(normalizedQuery.charAt(start))) {
+                continue;
+            }
+            int end = start;
+            while (end < length && !ReferenceScorer.isTokenSeparator(normalizedQuery.charAt(end))) {
+                end++;
+            }
+            words.add(normalizedQuery.substring(start, end));
+            start = end;
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Calls the consumer with the id and score of every item whose code the query abbreviates, in id order,
+     * like HTTP_NOT_FOUND for "hnf" or DB_CONNECTION_TIMEOUT for "dbct".
+     * Queries with anything but letters and digits match nothing.
+     */
+    public void abbreviationMatches(SearchQuery query, HitConsumer consumer) {
+        String normalizedQuery = query.getText();
+        if (!supportsAbbreviations(normalizedQuery)) {
+            return;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            int start = starts[i];
+            segments.get(i).abbreviationMatches(normalizedQuery, (id, score) -> consumer.accept(start + id, score));
+        }
+    }
+
+    /**
+     * Returns false if the query has anything but letters and digits, so that no code matches it as an abbreviation.
+     */
+    public static boolean supportsAbbreviations(String normalizedQuery) {
+        return Abbreviations.supports(normalizedQuery);
+    }
+
+    /**
+     * Scores the item as an abbreviation match of a query that {@link #supportsAbbreviations}, or returns -1.
+     * Mapped snapshots have no acronym index, so their callers check every item with this.
+     */
+    public int abbreviationScore(int id, String normalizedQuery) {
+        int segment = segmentOf(id);
+        return segments.get(segment).getStore().abbreviationScore(id - starts[segment], normalizedQuery);
+    }
+
+    /**
+     * Scores an approximate match of the item's code, or returns -1. Mapped snapshots have no term dictionary, so
+     * their callers check every item with this. The matcher keeps state between calls, so each thread needs its own.
+     */
+    public int fuzzyScore(int id, FuzzyMatcher matcher) {
+        int segment = segmentOf(id);
+        return segments.get(segment).getStore().fuzzyScore(id - starts[segment], matcher);
+    }
+
+    /**
+     * Calls the consumer with the id and score of every item whose code, or one of whose code tokens, is within
+     * {@link FuzzyMatcher#maxDistanceFor} edits of the query or starts with such a match. Items are reported once,
+     * with their closest match, in id order. Queries too short to allow any edits match nothing.
+     */
+    public void fuzzyMatches(SearchQuery query, HitConsumer consumer) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query.getText());
+        if (!matcher.isEnabled()) {
+            return;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            int start = starts[i];
+            segments.get(i).fuzzyMatches(matcher, (id, score) -> consumer.accept(start + id, score));
+        }
+    }
+
+    private int segmentOf(int id) {
+        if (segments.size() == 1) {
+            return 0;
+        }
+        // Last segment whose start is <= id; empty segments share their start with the next one
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= id) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    public List<ReferenceItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the sorted ids of the items whose code, value or one of whose code tokens equals the key.
+     */
+    public int[] getExactMatches(String key) {
+        if (segments.size() == 1) {
+            int[] ids = segments.get(0).getExactMatches(key);
+            return ids != null ? ids.clone() : new int[0];
+        }
+        IntList matches = new IntList();
+        for (int i = 0; i < segments.size(); i++) {
+            int[] ids = segments.get(i).getExactMatches(key);
+            if (ids != null) {
+                for (int id : ids) {
+                    matches.add(starts[i] + id);
+                }
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Returns the sorted ids of the items that contain every trigram of the query.
+     *
+     * @throws IllegalArgumentException if the query is shorter than a trigram
+     */
+    public int[] candidates(String query) {
+        if (segments.size() == 1) {
+            return segments.get(0).getTrigramIndex().candidates(query);
+        }
+        IntList candidates = new IntList();
+        for (int i = 0; i < segments.size(); i++) {
+            for (int id : segments.get(i).getTrigramIndex().candidates(query)) {
+                candidates.add(starts[i] + id);
+            }
+        }
+        return candidates.toArray();
+    }
+
+    public interface HitConsumer {
+        void accept(int id, int score);
+    }
+
+    private final class ItemsView extends AbstractList<ReferenceItem> implements RandomAccess {
+        @Override
+        public ReferenceItem get(int index) {
+            Objects.checkIndex(index, size());
+            int segment = segmentOf(index);
+            return segments.get(segment).getItems().get(index - starts[segment]);
+        }
+
+        @Override
+        public int size() {
+            return ReferenceIndex.this.size();
+        }
+    }
+}
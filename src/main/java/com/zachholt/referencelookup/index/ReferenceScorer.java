@@ -0,0 +1,117 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.MatchTier;
+
+/**
+ * Score rules shared by the {@link ReferenceStore}s, which match on their own row layouts.
+ * Scores combine a {@link MatchTier} with a field weight and the code length.
+ */
+public final class ReferenceScorer {
+    // Field weights used to break ties between matches of the same tier
+    public static final int FIELD_CODE = 200;
+    public static final int FIELD_VALUE = 100;
+    public static final int FIELD_DESCRIPTION = 0;
+
+    // Score lost per edit of a fuzzy match; MAX_DISTANCE edits bring the field weight of a code down to 0
+    private static final int FUZZY_EDIT_PENALTY = FIELD_CODE / FuzzyMatcher.MAX_DISTANCE;
+
+    private ReferenceScorer() {
+    }
+
+    /**
+     * The lowercase UTF-8 code, value and description of the rows of a store, as matched by {@link #score}.
+     */
+    interface LowercaseFields {
+        int CODE = 0;
+        int VALUE = 1;
+        int DESCRIPTION = 2;
+
+        /**
+         * Returns the length of the field in bytes, or 0 if it is null.
+         */
+        int length(int id, int field);
+
+        /**
+         * Returns the length of the code in characters, as {@link String#length} counts them, or 0 if it is null.
+         */
+        int codeLength(int id);
+
+        /**
+         * Returns the offset of the first occurrence of the query in the field at or after from, or -1.
+         */
+        int indexOf(int id, int field, byte[] query, int from);
+
+        int byteAt(int id, int field, int offset);
+    }
+
+    /**
+     * Scores a row against a substring query, or returns -1 if none of its fields contains the query.
+     * Exact and prefix matches rank above a code token starting with the query, then substrings of the code or value,
+     * then description matches; within a tier the code outranks the value.
+     */
+    static int score(LowercaseFields fields, int id, SearchQuery query) {
+        byte[] q = query.getUtf8();
+        int codeLength = fields.codeLength(id);
+
+        int codeMatch = fields.indexOf(id, LowercaseFields.CODE, q, 0);
+        int valueMatch = fields.indexOf(id, LowercaseFields.VALUE, q, 0);
+
+        if (codeMatch == 0 && fields.length(id, LowercaseFields.CODE) == q.length) {
+            return MatchTier.EXACT.score(FIELD_CODE, codeLength);
+        }
+        if (valueMatch == 0 && fields.length(id, LowercaseFields.VALUE) == q.length) {
+            return MatchTier.EXACT.score(FIELD_VALUE, codeLength);
+        }
+        if (codeMatch == 0) {
+            return MatchTier.PREFIX.score(FIELD_CODE, codeLength);
+        }
+        if (valueMatch == 0) {
+            return MatchTier.PREFIX.score(FIELD_VALUE, codeLength);
+        }
+        if (codeMatch > 0) {
+            for (int i = codeMatch; i > 0; i = fields.indexOf(id, LowercaseFields.CODE, q, i + 1)) {
+                if (isTokenSeparator(fields.byteAt(id, LowercaseFields.CODE, i - 1))) {
+                    return MatchTier.TOKEN_PREFIX.score(FIELD_CODE, codeLength);
+                }
+            }
+            return MatchTier.SUBSTRING.score(FIELD_CODE, codeLength);
+        }
+        if (valueMatch > 0) {
+            return MatchTier.SUBSTRING.score(FIELD_VALUE, codeLength);
+        }
+        if (fields.indexOf(id, LowercaseFields.DESCRIPTION, q, 0) >= 0) {
+            return MatchTier.DESCRIPTION.score(FIELD_DESCRIPTION, codeLength);
+        }
+        return -1;
+    }
+
+    /**
+     * Scores a fuzzy match with the given edit distance. Each edit costs more than the short code bonus,
+     * so fewer edits always rank first.
+     */
+    public static int fuzzyScore(int distance, int codeLength) {
+        return MatchTier.FUZZY.score(FIELD_CODE - distance * FUZZY_EDIT_PENALTY, codeLength);
+    }
+
+    /**
+     * Scores an item that has every word of a multi-word query among its code tokens, such as HTTP_NOT_FOUND
+     * for "not found http". It ranks below a code token starting with the whole query.
+     */
+    public static int wordsScore(int codeLength) {
+        return MatchTier.TOKEN_PREFIX.score(FIELD_VALUE, codeLength);
+    }
+
+    /**
+     * Scores a code abbreviated by the query, such as HTTP_NOT_FOUND for "hnf".
+     */
+    public static int abbreviationScore(int codeLength) {
+        return MatchTier.ABBREVIATION.score(FIELD_CODE, codeLength);
+    }
+
+    /**
+     * Returns true for the characters that split codes into tokens: "_", "-" and whitespace.
+     */
+    public static boolean isTokenSeparator(int c) {
+        return c == '_' || c == '-' || Character.isWhitespace(c);
+    }
+}
@@ -0,0 +1,34 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+/**
+ * Row storage behind a {@link ReferenceIndex}. Ids are dense row numbers starting at 0.
+ * Scores follow {@link ReferenceScorer}; -1 means the row does not match.
+ */
+public interface ReferenceStore {
+
+    int size();
+
+    /**
+     * Returns the reference in the given row. Stores keep rows rather than items, so each call creates a new view.
+     */
+    ReferenceItem get(int id);
+
+    int score(int id, SearchQuery query);
+
+    /**
+     * Scores an approximate match of the code or one of its tokens in the given row; see {@link FuzzyMatcher#codeDistance}.
+     */
+    int fuzzyScore(int id, FuzzyMatcher matcher);
+
+    /**
+     * Scores the code in the given row if the query abbreviates it; see {@link Abbreviations}.
+     */
+    int abbreviationScore(int id, String normalizedQuery);
+
+    /**
+     * Returns a rough estimate of the heap used by the rows, not counting mapped memory.
+     */
+    long estimateHeapBytes();
+}
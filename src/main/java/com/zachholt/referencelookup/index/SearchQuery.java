@@ -0,0 +1,34 @@
+package com.zachholt.referencelookup.index;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A normalized (trimmed, lowercase) query, with its UTF-8 encoding computed once for stores
+ * that match directly on bytes.
+ */
+public final class SearchQuery {
+    private final String text;
+    private byte[] utf8;
+
+    public SearchQuery(String normalizedText) {
+        this.text = normalizedText;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public byte[] getUtf8() {
+        byte[] bytes = utf8;
+        if (bytes == null) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            utf8 = bytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
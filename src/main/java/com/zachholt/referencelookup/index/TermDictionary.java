@@ -0,0 +1,129 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorted dictionary of the lowercase codes and code tokens of a segment, with the ids of the items using each term.
+ * {@link FuzzyMatcher} walks it in order, so the cost of a fuzzy search depends on the number of term prefixes
+ * within reach of the query rather than on the number of items. Terms sharing a prefix are adjacent,
+ * which also makes prefix lookups a range of the postings.
+ */
+final class TermDictionary {
+    // Ids and distances are packed into one int while matches are deduplicated
+    private static final int DISTANCE_BITS = 2;
+    private static final int DISTANCE_MASK = (1 << DISTANCE_BITS) - 1;
+
+    private final String[] terms;
+    private final byte[] commonPrefixLengths;
+    // postingStarts[i] is the start of the ids of term i in postings; the last entry is the end
+    private final int[] postingStarts;
+    private final int[] postings;
+
+    private TermDictionary(String[] terms, int[] postingStarts, int[] postings) {
+        this.terms = terms;
+        this.commonPrefixLengths = FuzzyMatcher.commonPrefixLengths(terms);
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+    }
+
+    static TermDictionary build(List<ReferenceItem> items) {
+        Map<String, IntList> termIds = new HashMap<>();
+        for (int id = 0; id < items.size(); id++) {
+            String codeLower = items.get(id).getCodeLower();
+            if (codeLower == null) {
+                continue;
+            }
+            addPosting(termIds, codeLower, id);
+            int length = codeLower.length();
+            for (int start = 0; start < length; start++) {
+                if (ReferenceScorer.isTokenSeparator(codeLower.charAt(start))) {
+                    continue;
+                }
+                int end = start;
+                while (end < length && !ReferenceScorer.isTokenSeparator(codeLower.charAt(end))) {
+                    end++;
+                }
+                if (start > 0 || end < length) {
+                    addPosting(termIds, codeLower.substring(start, end), id);
+                }
+                start = end;
+            }
+        }
+
+        String[] terms = termIds.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] postingStarts = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) {
+            postingStarts[i + 1] = postingStarts[i] + termIds.get(terms[i]).size();
+        }
+        int[] postings = new int[postingStarts[terms.length]];
+        for (int i = 0; i < terms.length; i++) {
+            IntList ids = termIds.get(terms[i]);
+            for (int j = 0; j < ids.size(); j++) {
+                postings[postingStarts[i] + j] = ids.get(j);
+            }
+        }
+        return new TermDictionary(terms, postingStarts, postings);
+    }
+
+    private static void addPosting(Map<String, IntList> termIds, String term, int id) {
+        IntList ids = termIds.computeIfAbsent(term, k -> new IntList(1));
+        // A code can repeat a token; ids arrive in order so the tail check dedupes
+        if (ids.last() != id) {
+            ids.add(id);
+        }
+    }
+
+    long estimateHeapBytes() {
+        return HeapSize.of(terms) + HeapSize.of(commonPrefixLengths) + HeapSize.of(postingStarts) + HeapSize.of(postings);
+    }
+
+    /**
+     * Calls the consumer once per matching item, in id order, with the smallest distance of any of its terms.
+     */
+    void search(FuzzyMatcher matcher, MatchConsumer consumer) {
+        IntList matches = new IntList();
+        matcher.search(terms, commonPrefixLengths, (term, distance) -> {
+            for (int i = postingStarts[term]; i < postingStarts[term + 1]; i++) {
+                matches.add(postings[i] << DISTANCE_BITS | distance);
+            }
+        });
+
+        // Sorting the packed values orders them by id and then by distance, so the first entry per id is the closest
+        int[] packed = matches.toArray();
+        Arrays.sort(packed);
+        int previousId = -1;
+        for (int match : packed) {
+            int id = match >>> DISTANCE_BITS;
+            if (id != previousId) {
+                consumer.accept(id, match & DISTANCE_MASK);
+                previousId = id;
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted ids of the items with a term starting with the prefix. The postings of those terms are
+     * stored back to back, so they are merged in one pass.
+     */
+    int[] idsWithPrefix(String prefix, int itemCount) {
+        int from = Arrays.binarySearch(terms, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < terms.length && terms[to].startsWith(prefix)) {
+            to++;
+        }
+        return IntSets.union(postings, postingStarts[from], postingStarts[to], itemCount);
+    }
+
+    interface MatchConsumer {
+        void accept(int id, int distance);
+    }
+}
@@ -0,0 +1,135 @@
+package com.zachholt.referencelookup.index;
+
+import java.util.Arrays;
+
+/**
+ * Collects the best scoring ids of a search.
+ * <p>
+ * With a positive limit the ids are kept in a fixed-size min-heap whose root is the weakest
+ * retained hit, so each offer is O(log k) and only k entries are ever stored or sorted.
+ * Without a limit every hit is kept and sorted once at the end.
+ * Ties are broken in favour of the lower id, i.e. the earlier item in the reference file.
+ */
+public final class TopKCollector {
+    private final int limit;
+    private int[] ids;
+    private int[] scores;
+    private int size;
+
+    public TopKCollector(int limit) {
+        this.limit = limit;
+        int capacity = limit > 0 ? limit : 16;
+        this.ids = new int[capacity];
+        this.scores = new int[capacity];
+    }
+
+    /**
+     * Returns the number of ids kept, or zero or less if every hit is kept.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isBounded() {
+        return limit > 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void offer(int id, int score) {
+        if (limit <= 0) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+                scores = Arrays.copyOf(scores, size << 1);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+            return;
+        }
+
+        if (size < limit) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (better(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Returns the collected ids ordered from best to worst. The collector must not be reused afterwards.
+     */
+    public int[] drainSorted() {
+        if (limit <= 0) {
+            // Build a heap over everything once, then pop like the bounded case
+            for (int i = (size >>> 1) - 1; i >= 0; i--) {
+                siftDown(i, size);
+            }
+        }
+        // Heap sort: repeatedly move the weakest root to the end, leaving the best first
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Returns the score of the id at the given position of an array returned by {@link #drainSorted()}.
+     */
+    public int scoreAt(int position) {
+        return scores[position];
+    }
+
+    private static boolean better(int idA, int scoreA, int idB, int scoreB) {
+        return scoreA > scoreB || (scoreA == scoreB && idA < idB);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(ids[parent], scores[parent], ids[index], scores[index])) {
+                break;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int left = (index << 1) + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int weakest = left;
+            int right = left + 1;
+            if (right < heapSize && better(ids[left], scores[left], ids[right], scores[right])) {
+                weakest = right;
+            }
+            if (!better(ids[index], scores[index], ids[weakest], scores[weakest])) {
+                return;
+            }
+            swap(index, weakest);
+            index = weakest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,202 @@
+package com.zachholt.referencelookup.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index from character trigrams to the ids of the items whose text contains them.
+ * Substring queries intersect the posting lists of their trigrams, so only the resulting
+ * candidates need to be verified with {@link String#contains}.
+ * <p>
+ * Postings live either in a heap map or, for {@link MappedReferenceStore}, in sorted sections of a mapped file.
+ */
+public final class TrigramIndex {
+    public static final int GRAM_LENGTH = 3;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Long, int[]> postings;
+
+    // Mapped representation: sorted keys, posting start per key (plus end sentinel) and the concatenated postings
+    private final LongBuffer mappedKeys;
+    private final IntBuffer mappedStarts;
+    private final IntBuffer mappedPostings;
+
+    private TrigramIndex(Map<Long, int[]> postings) {
+        this.postings = postings;
+        this.mappedKeys = null;
+        this.mappedStarts = null;
+        this.mappedPostings = null;
+    }
+
+    private TrigramIndex(LongBuffer keys, IntBuffer starts, IntBuffer postingData) {
+        this.postings = null;
+        this.mappedKeys = keys;
+        this.mappedStarts = starts;
+        this.mappedPostings = postingData;
+    }
+
+    static TrigramIndex mapped(LongBuffer keys, IntBuffer starts, IntBuffer postingData) {
+        return new TrigramIndex(keys, starts, postingData);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns true if the query is long enough to be answered from the index.
+     */
+    public static boolean supports(String query) {
+        return query != null && query.length() >= GRAM_LENGTH;
+    }
+
+    /**
+     * Returns a rough estimate of the heap used by the postings; mapped postings use none.
+     */
+    long estimateHeapBytes() {
+        return postings != null ? HeapSize.ofLongPostings(postings) : 0;
+    }
+
+    public int gramCount() {
+        return postings != null ? postings.size() : mappedKeys.limit();
+    }
+
+    /**
+     * Returns the sorted ids of all items containing every trigram of the query.
+     * The result is a superset of the real substring matches and must be verified by the caller.
+     */
+    public int[] candidates(String query) {
+        if (!supports(query)) {
+            throw new IllegalArgumentException("Query too short for trigram lookup: " + query);
+        }
+
+        int gramCount = query.length() - GRAM_LENGTH + 1;
+        int[][] lists = new int[gramCount][];
+        for (int i = 0; i < gramCount; i++) {
+            int[] list = postingsFor(key(query, i));
+            if (list == null) {
+                return EMPTY;
+            }
+            lists[i] = list;
+        }
+
+        // Intersect starting from the shortest list so the working set only shrinks, and short working sets
+        // gallop through the long lists of common trigrams
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                result = IntSets.intersect(result, lists[i]);
+            }
+        }
+        return result;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        long[] keys = sortedKeys();
+        out.writeInt(keys.length);
+        for (long key : keys) {
+            out.writeLong(key);
+            IndexIO.writeInts(out, postingsFor(key));
+        }
+    }
+
+    long[] sortedKeys() {
+        long[] keys;
+        if (postings != null) {
+            keys = new long[postings.size()];
+            int i = 0;
+            for (Long key : postings.keySet()) {
+                keys[i++] = key;
+            }
+            Arrays.sort(keys);
+        } else {
+            keys = new long[mappedKeys.limit()];
+            mappedKeys.get(0, keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the sorted ids posted under the key, or null if no item contains the trigram.
+     */
+    int[] postingsFor(long key) {
+        if (postings != null) {
+            return postings.get(key);
+        }
+
+        int low = 0;
+        int high = mappedKeys.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = mappedKeys.get(mid);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                int start = mappedStarts.get(mid);
+                int[] ids = new int[mappedStarts.get(mid + 1) - start];
+                mappedPostings.get(start, ids);
+                return ids;
+            }
+        }
+        return null;
+    }
+
+    public static TrigramIndex readFrom(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<Long, int[]> postings = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            long key = in.readLong();
+            postings.put(key, IndexIO.readInts(in));
+        }
+        return new TrigramIndex(postings);
+    }
+
+    static long key(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+            | ((long) text.charAt(offset + 1) << 16)
+            | text.charAt(offset + 2);
+    }
+
+    public static final class Builder {
+        private final Map<Long, IntList> postings = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds every trigram of the text to the posting list of the given item.
+         * Items must be added in ascending id order; several texts may be added for the same id.
+         */
+        public Builder add(int id, String text) {
+            if (text == null) {
+                return this;
+            }
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                IntList list = postings.computeIfAbsent(key(text, i), k -> new IntList());
+                // Ids arrive in order, so checking the tail is enough to keep each list distinct
+                if (list.last() != id) {
+                    list.add(id);
+                }
+            }
+            return this;
+        }
+
+        public TrigramIndex build() {
+            Map<Long, int[]> frozen = new HashMap<>(postings.size() * 4 / 3 + 1);
+            for (Map.Entry<Long, IntList> entry : postings.entrySet()) {
+                frozen.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return new TrigramIndex(frozen);
+        }
+    }
+}
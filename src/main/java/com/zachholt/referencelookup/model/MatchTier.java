@@ -0,0 +1,49 @@
+package com.zachholt.referencelookup.model;
+
+/**
+ * How well a reference matched a search query, from strongest to weakest.
+ * The tier dominates the score; field weight and code length only break ties inside a tier.
+ */
+public enum MatchTier {
+    /** Code or value equals the query. */
+    EXACT(6000),
+    /** Code or value starts with the query. */
+    PREFIX(5000),
+    /** A "_", "-" or space separated token of the code starts with the query, or the code has every word of it. */
+    TOKEN_PREFIX(4000),
+    /** Code or value contains the query. */
+    SUBSTRING(3000),
+    /** Only the description contains the query. */
+    DESCRIPTION(2000),
+    /** The query abbreviates the words of the code, like "hnf" for HTTP_NOT_FOUND. */
+    ABBREVIATION(1500),
+    /** The code or one of its tokens is within a few typos of the query, or starts with such a match. */
+    FUZZY(1000);
+
+    private final int weight;
+
+    MatchTier(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Combines the tier with a field weight (below 1000) and a small bonus for short codes,
+     * so that tighter matches like HTTP_OK rank above HTTP_OK_EXTENDED within the same tier.
+     */
+    public int score(int fieldWeight, int codeLength) {
+        return weight + fieldWeight + (99 - Math.min(codeLength, 99));
+    }
+
+    public static MatchTier fromScore(int score) {
+        for (MatchTier tier : values()) {
+            if (score >= tier.weight) {
+                return tier;
+            }
+        }
+        return FUZZY;
+    }
+}
@@ -8,6 +8,8 @@ public class ReferenceItem {
     private String description;
     private String category;
     private List<String> tags;
+    // Path of the file the constant was parsed from
+    private String source;
 
     // Cached lowercase values for efficient searching (lazily initialized)
     private transient String codeLower;
@@ -70,6 +72,14 @@ public class ReferenceItem {
         this.tags = tags;
     }
 
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
     /**
      * Returns lowercase code for efficient case-insensitive searching.
      * Lazily cached to avoid repeated String allocations.
@@ -105,6 +115,7 @@ public class ReferenceItem {
 
     @Override
     public String toString() {
-        return code + (value != null ? " (" + value + ")" : "") + " - " + description;
+        String value = getValue();
+        return getCode() + (value != null ? " (" + value + ")" : "") + " - " + getDescription();
     }
 }
\ No newline at end of file
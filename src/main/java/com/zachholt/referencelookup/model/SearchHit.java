@@ -0,0 +1,33 @@
+package com.zachholt.referencelookup.model;
+
+/**
+ * A ranked search result: the matched reference together with how it matched.
+ */
+public final class SearchHit {
+    private final ReferenceItem item;
+    private final MatchTier tier;
+    private final int score;
+
+    public SearchHit(ReferenceItem item, MatchTier tier, int score) {
+        this.item = item;
+        this.tier = tier;
+        this.score = score;
+    }
+
+    public ReferenceItem getItem() {
+        return item;
+    }
+
+    public MatchTier getTier() {
+        return tier;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return item.getCode() + " [" + tier + ", " + score + "]";
+    }
+}
@@ -0,0 +1,275 @@
+package com.zachholt.referencelookup.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits Java source into the few token kinds the constant parser needs, in a single forward pass.
+ * <p>
+ * Characters are read through a fixed-size buffer and token text is cut from it in bulk, so memory use does not
+ * depend on the file size.
+ * String, character and text block literals are kept whole, so separators inside them are never mistaken
+ * for the end of a declaration.
+ */
+final class JavaConstantLexer {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EOF = -1;
+
+    enum Kind {
+        WORD,
+        LITERAL,
+        SYMBOL,
+        DOC_COMMENT,
+        LINE_COMMENT,
+        BLOCK_COMMENT,
+        END
+    }
+
+    static final class Token {
+        final Kind kind;
+        final String text;
+        // Whitespace separates this token from the previous one
+        final boolean spaceBefore;
+        // A line break separates this token from the previous one, or it is the first token
+        final boolean startsLine;
+
+        Token(Kind kind, String text, boolean spaceBefore, boolean startsLine) {
+            this.kind = kind;
+            this.text = text;
+            this.spaceBefore = spaceBefore;
+            this.startsLine = startsLine;
+        }
+
+        boolean is(char symbol) {
+            return kind == Kind.SYMBOL && text.length() == 1 && text.charAt(0) == symbol;
+        }
+    }
+
+    private static final String[] COMMON_WORDS = {
+        "public", "static", "final", "private", "protected", "String", "int", "long", "Integer", "Long", "class", "new"
+    };
+
+    private static final String[] SYMBOLS = new String[128];
+
+    static {
+        for (char c = 0; c < SYMBOLS.length; c++) {
+            SYMBOLS[c] = String.valueOf(c);
+        }
+    }
+
+    private final Reader reader;
+    private final char[] chars = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean endOfInput;
+    private boolean firstToken = true;
+
+    // Start of the current token in chars, and the part of it that was moved out of the buffer by a refill
+    private int tokenStart;
+    private final StringBuilder spill = new StringBuilder();
+
+    // Tokens read ahead by peek
+    private final Token[] lookahead = new Token[2];
+    private int lookaheadCount;
+
+    JavaConstantLexer(Reader reader) {
+        this.reader = reader;
+    }
+
+    Token next() throws IOException {
+        if (lookaheadCount > 0) {
+            Token token = lookahead[0];
+            lookahead[0] = lookahead[1];
+            lookahead[1] = null;
+            lookaheadCount--;
+            return token;
+        }
+        return read();
+    }
+
+    /**
+     * Returns the token {@code ahead} positions after the next one without consuming it; 0 is the next token.
+     */
+    Token peek(int ahead) throws IOException {
+        while (lookaheadCount <= ahead) {
+            lookahead[lookaheadCount++] = read();
+        }
+        return lookahead[ahead];
+    }
+
+    private Token read() throws IOException {
+        boolean space = false;
+        boolean newLine = firstToken;
+        firstToken = false;
+        tokenStart = pos;
+
+        while (ensure(1)) {
+            char c = chars[pos];
+            if (c == '\n') {
+                newLine = true;
+            } else if (c > ' ' && !Character.isWhitespace(c)) {
+                break;
+            }
+            space = true;
+            pos++;
+        }
+        spill.setLength(0);
+        tokenStart = pos;
+
+        if (!ensure(1)) {
+            return new Token(Kind.END, "", space, newLine);
+        }
+
+        char c = chars[pos];
+        if (c == '/' && charAt(1) == '/') {
+            pos += 2;
+            tokenStart = pos;
+            while (ensure(1) && chars[pos] != '\n') {
+                pos++;
+            }
+            return new Token(Kind.LINE_COMMENT, tokenText(), space, newLine);
+        }
+
+        if (c == '/' && charAt(1) == '*') {
+            // "/**/" is an empty block comment rather than the start of a doc comment
+            Kind kind = charAt(2) == '*' && charAt(3) != '/' ? Kind.DOC_COMMENT : Kind.BLOCK_COMMENT;
+            pos += 2;
+            while (ensure(1)) {
+                if (chars[pos] == '*' && charAt(1) == '/') {
+                    pos += 2;
+                    break;
+                }
+                pos++;
+            }
+            String comment = kind == Kind.DOC_COMMENT ? tokenText() : "";
+            spill.setLength(0);
+            return new Token(kind, comment, space, newLine);
+        }
+
+        if (c == '"' || c == '\'') {
+            readLiteral(c);
+            return new Token(Kind.LITERAL, tokenText(), space, newLine);
+        }
+
+        if (isWordStart(c)) {
+            boolean number = c >= '0' && c <= '9';
+            pos++;
+            while (ensure(1)) {
+                char part = chars[pos];
+                if (isWordPart(part) || (number && part == '.' && isDigit(charAt(1)))) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return new Token(Kind.WORD, wordText(), space, newLine);
+        }
+
+        pos++;
+        return new Token(Kind.SYMBOL, c < SYMBOLS.length ? SYMBOLS[c] : String.valueOf(c), space, newLine);
+    }
+
+    private void readLiteral(char quote) throws IOException {
+        boolean textBlock = quote == '"' && charAt(1) == '"' && charAt(2) == '"';
+        int delimiterLength = textBlock ? 3 : 1;
+        pos += delimiterLength;
+
+        while (ensure(1)) {
+            char c = chars[pos];
+            if (c == '\\') {
+                pos++;
+                if (ensure(1)) {
+                    pos++;
+                }
+                continue;
+            }
+            if (c == quote && (!textBlock || (charAt(1) == '"' && charAt(2) == '"'))) {
+                pos += delimiterLength;
+                return;
+            }
+            // An unterminated literal ends at the line break
+            if (c == '\n' && !textBlock) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private static boolean isWordStart(char c) {
+        return c < 128 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$'
+            : Character.isJavaIdentifierStart(c);
+    }
+
+    private static boolean isWordPart(char c) {
+        return c < 128 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$'
+            : Character.isJavaIdentifierPart(c);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private String wordText() {
+        // Keywords and common type names repeat on every declaration; reuse their strings
+        if (spill.length() == 0) {
+            int length = pos - tokenStart;
+            for (String word : COMMON_WORDS) {
+                if (word.length() == length && matchesToken(word)) {
+                    return word;
+                }
+            }
+        }
+        return tokenText();
+    }
+
+    private boolean matchesToken(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (chars[tokenStart + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenText() {
+        if (spill.length() == 0) {
+            return new String(chars, tokenStart, pos - tokenStart);
+        }
+        spill.append(chars, tokenStart, pos - tokenStart);
+        String text = spill.toString();
+        spill.setLength(0);
+        return text;
+    }
+
+    private int charAt(int offset) throws IOException {
+        return ensure(offset + 1) ? chars[pos + offset] : EOF;
+    }
+
+    /**
+     * Makes {@code count} characters from the current position available, refilling the buffer if needed.
+     * The part of the current token that is moved out of the buffer is kept in {@link #spill}.
+     * Returns false if the input ends first.
+     */
+    private boolean ensure(int count) throws IOException {
+        if (pos + count <= limit) {
+            return true;
+        }
+        if (endOfInput) {
+            return false;
+        }
+        spill.append(chars, tokenStart, pos - tokenStart);
+        System.arraycopy(chars, pos, chars, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        tokenStart = 0;
+        while (limit < count && !endOfInput) {
+            int read = reader.read(chars, limit, chars.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        }
+        return count <= limit;
+    }
+}
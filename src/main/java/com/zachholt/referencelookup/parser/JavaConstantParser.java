@@ -2,178 +2,311 @@ package com.zachholt.referencelookup.parser;
 
 import com.zachholt.referencelookup.model.ReferenceItem;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 public class JavaConstantParser {
-    // Simplified pattern to match any type (including primitives and generics)
-    private static final Pattern CONSTANT_PATTERN = Pattern.compile(
-        "public\\s+static\\s+final\\s+[\\w<>\\[\\]]+\\s+(\\w+)\\s*=\\s*(.+?);"
-    );
-    
-    // Pattern to match JavaDoc comments
-    private static final Pattern JAVADOC_PATTERN = Pattern.compile(
-        "/\\*\\*\\s*\\n?\\s*\\*?\\s*(.+?)\\s*\\*/",
-        Pattern.DOTALL
-    );
-    
-    // Pattern to match single-line comments
-    private static final Pattern SINGLE_LINE_COMMENT_PATTERN = Pattern.compile(
-        "//\\s*(.+)"
-    );
+    private static final int PUBLIC = 1;
+    private static final int STATIC = 1 << 1;
+    private static final int FINAL = 1 << 2;
+    private static final int OTHER_MODIFIER = 1 << 3;
+    private static final int CONSTANT = PUBLIC | STATIC | FINAL;
 
     public List<ReferenceItem> parseJavaFile(Path javaFile) throws IOException {
+        List<ReferenceItem> references = new ArrayList<>();
+        parseJavaFile(javaFile, references::add);
+        return references;
+    }
+
+    /**
+     * Parses the file in a single forward pass and hands each constant to the consumer as soon as it is read.
+     * Only the comment directly above the current declaration is kept, so memory use does not depend on the file size.
+     * Declarations may span lines and declare several constants.
+     */
+    public void parseJavaFile(Path javaFile, Consumer<ReferenceItem> consumer) throws IOException {
         if (!Files.exists(javaFile)) {
-            return Collections.emptyList();
+            return;
         }
 
-        List<ReferenceItem> references = new ArrayList<>();
-        List<String> lines = Files.readAllLines(javaFile);
-        
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            
-            // Skip empty lines and package/import statements
-            if (line.isEmpty() || line.startsWith("package") || line.startsWith("import")) {
-                continue;
-            }
-            
-            // Check for constants
-            Matcher constantMatcher = CONSTANT_PATTERN.matcher(line);
-            if (constantMatcher.find()) {
-                String constantName = constantMatcher.group(1);
-                String constantValue = constantMatcher.group(2).trim();
-                
-                // Clean up the value
-                if (constantValue.startsWith("\"") && constantValue.endsWith("\"")) {
-                    // String value - remove quotes
-                    constantValue = constantValue.substring(1, constantValue.length() - 1);
-                } else if (constantValue.contains(".valueOf(")) {
-                    // Extract value from Integer.valueOf(123) -> "123"
-                    int start = constantValue.indexOf('(');
-                    int end = constantValue.lastIndexOf(')');
-                    if (start != -1 && end != -1 && start < end) {
-                        constantValue = constantValue.substring(start + 1, end).trim();
-                    }
-                }
-                
-                // Look for associated comments
-                String description = findDescription(lines, i);
-                
-                // If no comment found, use the constant value as description
-                if (description.isEmpty() && !constantValue.equals(constantName)) {
-                    description = constantValue;
+        try (Reader reader = Files.newBufferedReader(javaFile, StandardCharsets.UTF_8)) {
+            JavaConstantLexer lexer = new JavaConstantLexer(reader);
+            // Description from the comment above, kept across annotations and modifiers
+            String pendingDescription = "";
+            int modifiers = 0;
+
+            JavaConstantLexer.Token token;
+            while ((token = lexer.next()).kind != JavaConstantLexer.Kind.END) {
+                switch (token.kind) {
+                    case DOC_COMMENT:
+                        pendingDescription = parseJavaDoc(token.text);
+                        break;
+                    case LINE_COMMENT:
+                        // A comment after code on the same line belongs to that code
+                        if (token.startsLine) {
+                            pendingDescription = token.text.trim();
+                        }
+                        break;
+                    case BLOCK_COMMENT:
+                        break;
+                    case WORD:
+                        int modifier = modifierOf(token.text);
+                        if (modifier != 0) {
+                            modifiers |= modifier;
+                            break;
+                        }
+                        if ((modifiers & CONSTANT) == CONSTANT) {
+                            parseDeclaration(lexer, pendingDescription, consumer);
+                        }
+                        modifiers = 0;
+                        pendingDescription = "";
+                        break;
+                    default:
+                        if (token.is('@')) {
+                            skipAnnotation(lexer);
+                            break;
+                        }
+                        modifiers = 0;
+                        pendingDescription = "";
+                        break;
                 }
-                
-                // Create the reference item
-                ReferenceItem item = new ReferenceItem(
-                    constantName,
-                    constantValue,
-                    description,
-                    extractCategory(constantName),
-                    extractTags(constantName, description)
-                );
-                
-                references.add(item);
             }
         }
-        
-        return references;
     }
-    
-    private String findDescription(List<String> lines, int currentIndex) {
-        StringBuilder description = new StringBuilder();
-        
-        // Check for JavaDoc above the constant
-        if (currentIndex > 0) {
-            int searchIndex = currentIndex - 1;
-            List<String> commentLines = new ArrayList<>();
-            
-            // Collect comment lines going backwards
-            while (searchIndex >= 0) {
-                String line = lines.get(searchIndex).trim();
-                
-                if (line.endsWith("*/")) {
-                    // Found end of JavaDoc, now collect until start
-                    commentLines.add(line);
-                    
-                    // If the same line also starts the comment, we are done
-                    if (!line.startsWith("/**")) {
-                        searchIndex--;
-                        
-                        while (searchIndex >= 0) {
-                            line = lines.get(searchIndex).trim();
-                            commentLines.add(line);
-                            if (line.startsWith("/**")) {
-                                break;
-                            }
-                            searchIndex--;
-                        }
-                    }
-                    
-                    // Reverse and parse JavaDoc
-                    Collections.reverse(commentLines);
-                    String javadoc = String.join("\n", commentLines);
-                    description.append(parseJavaDoc(javadoc));
-                    break;
-                    
-                } else if (line.startsWith("//")) {
-                    // Single line comment
-                    Matcher matcher = SINGLE_LINE_COMMENT_PATTERN.matcher(line);
-                    if (matcher.find()) {
-                        description.append(matcher.group(1).trim());
-                    }
-                    break;
-                } else if (!line.isEmpty() && !line.startsWith("@")) {
-                    // Hit non-comment, non-annotation line
-                    break;
+
+    private static int modifierOf(String word) {
+        switch (word) {
+            case "public":
+                return PUBLIC;
+            case "static":
+                return STATIC;
+            case "final":
+                return FINAL;
+            case "protected":
+            case "private":
+            case "transient":
+            case "volatile":
+                return OTHER_MODIFIER;
+            default:
+                return 0;
+        }
+    }
+
+    private static void skipAnnotation(JavaConstantLexer lexer) throws IOException {
+        if (lexer.next().kind != JavaConstantLexer.Kind.WORD) {
+            return;
+        }
+        while (lexer.peek(0).is('.') && lexer.peek(1).kind == JavaConstantLexer.Kind.WORD) {
+            lexer.next();
+            lexer.next();
+        }
+        if (lexer.peek(0).is('(')) {
+            skipBalanced(lexer);
+        }
+    }
+
+    /**
+     * Consumes a bracketed group starting at the next token, including nested groups.
+     */
+    private static void skipBalanced(JavaConstantLexer lexer) throws IOException {
+        int depth = 0;
+        JavaConstantLexer.Token token;
+        while ((token = lexer.next()).kind != JavaConstantLexer.Kind.END) {
+            if (token.is('(') || token.is('[') || token.is('{')) {
+                depth++;
+            } else if ((token.is(')') || token.is(']') || token.is('}')) && --depth <= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parses the declaration following {@code public static final}; the first word of the type has been read.
+     * Methods, nested types and fields without an initializer are skipped.
+     */
+    private void parseDeclaration(JavaConstantLexer lexer, String description, Consumer<ReferenceItem> consumer) throws IOException {
+        if (!skipType(lexer)) {
+            return;
+        }
+
+        List<String> names = new ArrayList<>(1);
+        List<String> values = new ArrayList<>(1);
+        while (true) {
+            JavaConstantLexer.Token name = lexer.next();
+            if (name.kind != JavaConstantLexer.Kind.WORD) {
+                return;
+            }
+            JavaConstantLexer.Token token = lexer.next();
+            while (token.is('[') && lexer.peek(0).is(']')) {
+                lexer.next();
+                token = lexer.next();
+            }
+            if (token.is('=')) {
+                StringBuilder value = new StringBuilder();
+                token = readInitializer(lexer, value);
+                names.add(name.text);
+                values.add(value.toString());
+            }
+            if (token.is(';')) {
+                break;
+            }
+            if (!token.is(',')) {
+                return;
+            }
+        }
+
+        // Check for inline comment on the same line as the end of the declaration
+        String inlineComment = "";
+        JavaConstantLexer.Token next = lexer.peek(0);
+        if (next.kind == JavaConstantLexer.Kind.LINE_COMMENT && !next.startsLine) {
+            inlineComment = lexer.next().text.trim();
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            consumer.accept(createItem(names.get(i), values.get(i), description.isEmpty() ? inlineComment : description));
+        }
+    }
+
+    /**
+     * Skips the rest of a type: qualified name parts, type arguments and array brackets.
+     */
+    private static boolean skipType(JavaConstantLexer lexer) throws IOException {
+        while (lexer.peek(0).is('.') && lexer.peek(1).kind == JavaConstantLexer.Kind.WORD) {
+            lexer.next();
+            lexer.next();
+        }
+        if (lexer.peek(0).is('<')) {
+            int depth = 0;
+            JavaConstantLexer.Token token;
+            do {
+                token = lexer.next();
+                if (token.kind == JavaConstantLexer.Kind.END || token.is(';') || token.is('{')) {
+                    return false;
+                }
+                if (token.is('<')) {
+                    depth++;
+                } else if (token.is('>')) {
+                    depth--;
                 }
-                
-                searchIndex--;
+            } while (depth > 0);
+        }
+        while (lexer.peek(0).is('[') && lexer.peek(1).is(']')) {
+            lexer.next();
+            lexer.next();
+        }
+        return true;
+    }
+
+    /**
+     * Reads an initializer into {@code value}, with comments dropped and whitespace collapsed to single spaces.
+     * Returns the token that ended it: {@code ;}, a {@code ,} starting the next declarator, or the end of input.
+     */
+    private static JavaConstantLexer.Token readInitializer(JavaConstantLexer lexer, StringBuilder value) throws IOException {
+        int depth = 0;
+        JavaConstantLexer.Token token;
+        while ((token = lexer.next()).kind != JavaConstantLexer.Kind.END) {
+            if (token.kind == JavaConstantLexer.Kind.DOC_COMMENT
+                || token.kind == JavaConstantLexer.Kind.LINE_COMMENT
+                || token.kind == JavaConstantLexer.Kind.BLOCK_COMMENT) {
+                continue;
             }
+            if (depth == 0 && token.is(';')) {
+                return token;
+            }
+            // Commas also separate type arguments, so only "name =" counts as the next declarator
+            if (depth == 0 && token.is(',')
+                && lexer.peek(0).kind == JavaConstantLexer.Kind.WORD && lexer.peek(1).is('=')) {
+                return token;
+            }
+            if (token.is('(') || token.is('[') || token.is('{')) {
+                depth++;
+            } else if (token.is(')') || token.is(']') || token.is('}')) {
+                depth--;
+            }
+            if (value.length() > 0 && token.spaceBefore) {
+                value.append(' ');
+            }
+            value.append(token.text);
         }
-        
-        // Check for inline comment on the same line
-        if (description.length() == 0 && currentIndex < lines.size()) {
-            String line = lines.get(currentIndex);
-            int commentIndex = line.indexOf("//");
-            if (commentIndex > 0) {
-                String inlineComment = line.substring(commentIndex + 2).trim();
-                description.append(inlineComment);
+        return token;
+    }
+
+    private ReferenceItem createItem(String constantName, String constantValue, String description) {
+        // Clean up the value
+        if (constantValue.startsWith("\"\"\"") && constantValue.endsWith("\"\"\"") && constantValue.length() >= 6) {
+            // Text block - drop the delimiters and the incidental indentation
+            constantValue = constantValue.substring(3, constantValue.length() - 3).stripIndent().strip();
+        } else if (constantValue.startsWith("\"") && constantValue.endsWith("\"") && constantValue.length() > 1) {
+            // String value - remove quotes
+            constantValue = constantValue.substring(1, constantValue.length() - 1);
+        } else if (constantValue.contains(".valueOf(")) {
+            // Extract value from Integer.valueOf(123) -> "123"
+            int start = constantValue.indexOf('(');
+            int end = constantValue.lastIndexOf(')');
+            if (start != -1 && end != -1 && start < end) {
+                constantValue = constantValue.substring(start + 1, end).trim();
             }
         }
-        
-        return description.toString();
+
+        // If no comment found, use the constant value as description
+        if (description.isEmpty() && !constantValue.equals(constantName)) {
+            description = constantValue;
+        }
+
+        return new ReferenceItem(
+            constantName,
+            constantValue,
+            description,
+            extractCategory(constantName),
+            extractTags(constantName, description)
+        );
     }
-    
-    private String parseJavaDoc(String javadoc) {
-        // Remove /** and */
-        javadoc = javadoc.replaceAll("/\\*\\*", "").replaceAll("\\*/", "");
-        
-        // Remove * from beginning of lines
-        String[] lines = javadoc.split("\n");
+
+    /**
+     * Extracts the text of a JavaDoc comment: delimiters and leading asterisks are removed, block tags
+     * such as {@code @param} are skipped and the remaining lines are joined with spaces.
+     */
+    private static String parseJavaDoc(String javadoc) {
+        int end = javadoc.endsWith("*/") && javadoc.length() >= 5 ? javadoc.length() - 2 : javadoc.length();
         StringBuilder result = new StringBuilder();
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.startsWith("*")) {
-                line = line.substring(1).trim();
+
+        int lineStart = Math.min(3, end);
+        while (lineStart < end) {
+            int lineEnd = javadoc.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end) {
+                lineEnd = end;
+            }
+
+            int from = lineStart;
+            int to = lineEnd;
+            while (from < to && Character.isWhitespace(javadoc.charAt(from))) {
+                from++;
+            }
+            if (from < to && javadoc.charAt(from) == '*') {
+                from++;
+                while (from < to && Character.isWhitespace(javadoc.charAt(from))) {
+                    from++;
+                }
             }
-            if (!line.isEmpty() && !line.startsWith("@")) { // Skip @param, @return etc
+            while (to > from && Character.isWhitespace(javadoc.charAt(to - 1))) {
+                to--;
+            }
+
+            // Skip @param, @return etc
+            if (from < to && javadoc.charAt(from) != '@') {
                 if (result.length() > 0) {
-                    result.append(" ");
+                    result.append(' ');
                 }
-                result.append(line);
+                result.append(javadoc, from, to);
             }
+            lineStart = lineEnd + 1;
         }
-        
+
         return result.toString();
     }
     
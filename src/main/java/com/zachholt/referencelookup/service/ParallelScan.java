@@ -0,0 +1,131 @@
+package com.zachholt.referencelookup.service;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.zachholt.referencelookup.index.IntList;
+import com.zachholt.referencelookup.index.TopKCollector;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Scores the items of a search pass in shards, one virtual thread per shard.
+ * <p>
+ * Every shard keeps its own top hits and matches, which are merged in shard order afterwards, so the result is
+ * the same as scoring every item on one thread. Shards are small enough for their rows to stay in the CPU cache,
+ * and there are many more of them than cores, so shards of cheap items and shards of expensive ones even out.
+ * Cancelling the progress indicator of the calling thread stops every shard.
+ */
+final class ParallelScan {
+    // Items per shard
+    static final int SHARD_SIZE = 16_384;
+    // Items scored between checks for cancellation; a power of two
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private ParallelScan() {
+    }
+
+    /**
+     * Scores one item of a pass, returning -1 if it does not match.
+     */
+    interface RowScorer {
+        int score(int id);
+    }
+
+    /**
+     * Returns true if the pass is large enough to be worth splitting.
+     */
+    static boolean isWorthwhile(int itemCount) {
+        return itemCount >= 2 * SHARD_SIZE && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Scores the given ids, or all ids below {@code count} if ids is null, and offers every match to the collector.
+     * Matches are also added to matched in the order of the ids. Every shard gets its own scorer from the supplier,
+     * so scorers may keep state.
+     *
+     * @throws ProcessCanceledException if the progress indicator of the calling thread was cancelled
+     */
+    static void collect(Supplier<RowScorer> scorers, @Nullable int[] ids, int count,
+                        TopKCollector collector, @Nullable IntList matched) {
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<Shard>> shards = new ArrayList<>();
+            for (int from = 0; from < count; from += SHARD_SIZE) {
+                int start = from;
+                int end = Math.min(count, from + SHARD_SIZE);
+                shards.add(executor.submit(() ->
+                        scan(scorers.get(), ids, start, end, collector.getLimit(), matched != null, indicator)));
+            }
+
+            for (Future<Shard> future : shards) {
+                Shard shard = future.get();
+                if (shard == null) {
+                    throw new ProcessCanceledException();
+                }
+                shard.mergeInto(collector, matched);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search shard failed", e.getCause());
+        } finally {
+            // Interrupts shards that are still running after a failure or cancellation
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Scores one shard, or returns null once the indicator is cancelled.
+     */
+    private static @Nullable Shard scan(RowScorer scorer, @Nullable int[] ids, int from, int to, int limit,
+                                        boolean keepMatches, @Nullable ProgressIndicator indicator) {
+        Shard shard = new Shard(limit, keepMatches);
+        for (int i = from; i < to; i++) {
+            if (((i - from) & (CANCEL_CHECK_INTERVAL - 1)) == 0
+                    && (Thread.currentThread().isInterrupted() || (indicator != null && indicator.isCanceled()))) {
+                return null;
+            }
+            int id = ids != null ? ids[i] : i;
+            int score = scorer.score(id);
+            if (score >= 0) {
+                shard.hits.offer(id, score);
+                if (shard.matched != null) {
+                    shard.matched.add(id);
+                }
+            }
+        }
+        return shard;
+    }
+
+    private static final class Shard {
+        final TopKCollector hits;
+        final @Nullable IntList matched;
+
+        Shard(int limit, boolean keepMatches) {
+            this.hits = new TopKCollector(limit);
+            this.matched = keepMatches ? new IntList() : null;
+        }
+
+        void mergeInto(TopKCollector collector, @Nullable IntList allMatched) {
+            int[] ids = hits.drainSorted();
+            for (int i = 0; i < ids.length; i++) {
+                collector.offer(ids[i], hits.scoreAt(i));
+            }
+            if (allMatched != null && matched != null) {
+                for (int i = 0; i < matched.size(); i++) {
+                    allMatched.add(matched.get(i));
+                }
+            }
+        }
+    }
+}
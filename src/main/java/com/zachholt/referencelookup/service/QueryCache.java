@@ -0,0 +1,116 @@
+package com.zachholt.referencelookup.service;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of search results, keyed by normalized query and limit.
+ * <p>
+ * Results refer to the snapshot they were computed on, so the cache only holds results of one snapshot generation
+ * and clears itself when asked about a newer one. It is bounded both by the number of results and by the number
+ * of ids they hold together, so a few broad queries cannot pin a large part of the heap.
+ */
+final class QueryCache {
+    static final int MAX_ENTRIES = 128;
+    // Two ints per id, so about 8 MB
+    static final int MAX_IDS = 1 << 20;
+
+    private final LinkedHashMap<Key, SearchResult> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation = -1;
+    private long cachedIds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the cached result and counts a hit or a miss.
+     */
+    @Nullable SearchResult get(long currentGeneration, String normalizedQuery, int limit) {
+        SearchResult result = peek(currentGeneration, normalizedQuery, limit);
+        (result != null ? hits : misses).incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Returns the cached result without counting the lookup.
+     */
+    synchronized @Nullable SearchResult peek(long currentGeneration, String normalizedQuery, int limit) {
+        if (currentGeneration != generation) {
+            // Drop results of an older snapshot right away rather than keeping it reachable until the next put
+            if (currentGeneration > generation) {
+                clear();
+                generation = currentGeneration;
+            }
+            return null;
+        }
+        return results.get(new Key(normalizedQuery, limit));
+    }
+
+    synchronized void put(long currentGeneration, String normalizedQuery, int limit, SearchResult result) {
+        if (currentGeneration < generation || result.size() > MAX_IDS / 4) {
+            return;
+        }
+        if (currentGeneration > generation) {
+            clear();
+            generation = currentGeneration;
+        }
+
+        SearchResult previous = results.put(new Key(normalizedQuery, limit), result);
+        if (previous != null) {
+            cachedIds -= previous.size();
+        }
+        cachedIds += result.size();
+
+        Iterator<SearchResult> eldest = results.values().iterator();
+        while (results.size() > MAX_ENTRIES || cachedIds > MAX_IDS) {
+            cachedIds -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    synchronized void clear() {
+        results.clear();
+        cachedIds = 0;
+    }
+
+    synchronized int size() {
+        return results.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private static final class Key {
+        final String query;
+        final int limit;
+
+        Key(String query, int limit) {
+            this.query = query;
+            // Every non-positive limit means all hits
+            this.limit = Math.max(limit, 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return limit == key.limit && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, limit);
+        }
+    }
+}
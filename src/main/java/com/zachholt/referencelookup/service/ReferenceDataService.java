@@ -1,66 +1,94 @@
 package com.zachholt.referencelookup.service;
 
-import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.zachholt.referencelookup.index.ReferenceIndex;
 import com.zachholt.referencelookup.model.ReferenceItem;
-import com.zachholt.referencelookup.parser.JavaConstantParser;
+import com.zachholt.referencelookup.model.SearchHit;
 import com.zachholt.referencelookup.settings.ReferenceSettingsState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service(Service.Level.PROJECT)
-public final class ReferenceDataService {
+public final class ReferenceDataService implements Disposable {
     private static final Logger LOG = Logger.getInstance(ReferenceDataService.class);
 
-    private static final Pattern CODE_SPLIT_PATTERN = Pattern.compile("[\\s_-]");
-    
-    // Check once if Java plugin is available
-    private static final boolean JAVA_AVAILABLE = isJavaPluginAvailable();
-
-    private final List<ReferenceItem> references = new ArrayList<>();
-    private final Map<String, List<ReferenceItem>> codeIndex = new HashMap<>();
+    // Current immutable snapshot, shared with other projects using the same source through ReferenceIndexStore
+    private final AtomicReference<ReferenceIndex> index = new AtomicReference<>(ReferenceIndex.EMPTY);
 
     private final Project project;
 
     private volatile boolean isLoaded = false;
     private volatile boolean isLoading = false;
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final List<Runnable> loadListeners = new ArrayList<>();
 
+    // Guarded by this: the source acquired from the store, and the id of the most recent load request
+    private ReferenceIndexStore.SourceKey acquiredSource;
+    private long loadRequests;
+
+    // Results of recent searches on the current snapshot
+    private final QueryCache queryCache = new QueryCache();
+    private final ReferenceMetrics metrics = new ReferenceMetrics();
+
+    // Notified after changed source files were applied to the snapshot
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
     public ReferenceDataService(Project project) {
         this.project = project;
-    }
-    
-    private static boolean isJavaPluginAvailable() {
-        try {
-            Class.forName("com.intellij.psi.PsiJavaFile");
-            return true;
-        } catch (ClassNotFoundException e) {
-            return false;
-        }
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                onFilesChanged(events);
+            }
+        });
     }
 
     public static ReferenceDataService getInstance(Project project) {
         return project.getService(ReferenceDataService.class);
     }
 
+    /**
+     * Reloads the references of every open project after a settings change.
+     * Projects using the same source share a single parse.
+     */
+    public static void reloadAll() {
+        ReferenceIndexStore.getInstance().invalidateAll();
+        for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+            getInstance(project).startLoad(false);
+        }
+    }
+
+    /**
+     * Re-reads all reference files in the background. The current snapshot stays searchable until
+     * the new one is published.
+     */
     public void reload() {
-        isLoaded = false;
-        isLoading = false;
-        loadReferencesAsync();
+        startLoad(true);
     }
 
     public void loadReferencesAsync() {
@@ -68,64 +96,121 @@ public final class ReferenceDataService {
 
         synchronized (this) {
             if (isLoading || isLoaded) return;
-            isLoading = true;
         }
+        startLoad(false);
+    }
 
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            long startTime = System.currentTimeMillis();
-            try {
-                LOG.info("Starting background load of references... (Java available: " + JAVA_AVAILABLE + ")");
-
-                List<ReferenceItem> loadedItems = new ArrayList<>();
-                ReferenceSettingsState settings = ReferenceSettingsState.getInstance();
-
-                if (settings.referenceFilePath != null && !settings.referenceFilePath.isEmpty()) {
-                    Path javaPath = Paths.get(settings.referenceFilePath);
-                    if (Files.exists(javaPath)) {
-                        LOG.info("Loading references from: " + javaPath);
-                        loadedItems.addAll(loadFromJavaFile(javaPath));
-                    } else {
-                        LOG.warn("Reference file not found: " + javaPath);
-                    }
-                } else {
-                    LOG.info("No reference file configured in settings");
+    private void startLoad(boolean refresh) {
+        ReferenceIndexStore store = ReferenceIndexStore.getInstance();
+        ReferenceIndexStore.SourceKey source = ReferenceIndexStore.SourceKey.fromSettings();
+        long request;
+        synchronized (this) {
+            if (project.isDisposed()) return;
+            isLoading = true;
+            request = ++loadRequests;
+            if (!source.equals(acquiredSource)) {
+                store.acquire(source);
+                if (acquiredSource != null) {
+                    store.release(acquiredSource);
                 }
+                acquiredSource = source;
+            }
+        }
 
-                lock.writeLock().lock();
+        publishWhenDone(request, store.load(source, project, refresh), false);
+    }
+
+    private void onFilesChanged(List<? extends VFileEvent> events) {
+        ReferenceIndexStore.SourceKey source;
+        synchronized (this) {
+            source = acquiredSource;
+        }
+        if (source == null || !isLoaded) return;
+
+        // Changed, deleted or renamed files of the snapshot, and new files covered by a directory or glob source
+        Set<String> loadedSources = new HashSet<>(index.get().getSources());
+        Set<Path> changed = new LinkedHashSet<>();
+        for (VFileEvent event : events) {
+            // Sources are local files; paths of other file systems, such as jars, are not file paths at all
+            if (!(event.getFileSystem() instanceof LocalFileSystem)) {
+                continue;
+            }
+            List<String> paths = new ArrayList<>(2);
+            paths.add(event.getPath());
+            if (event instanceof VFileMoveEvent) {
+                paths.add(((VFileMoveEvent) event).getOldPath());
+            } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                paths.add(((VFilePropertyChangeEvent) event).getOldPath());
+            }
+            for (String path : paths) {
+                Path file;
                 try {
-                    long indexStart = System.currentTimeMillis();
-                    references.clear();
-                    references.addAll(loadedItems);
-                    buildIndex();
-                    long indexDuration = System.currentTimeMillis() - indexStart;
-                    isLoaded = true;
-                    long totalDuration = System.currentTimeMillis() - startTime;
-                    LOG.info("Loaded " + references.size() + " reference items in " + totalDuration + "ms (Indexing: " + indexDuration + "ms)");
-                } finally {
-                    lock.writeLock().unlock();
+                    file = Paths.get(path);
+                } catch (InvalidPathException e) {
+                    continue;
                 }
+                if (loadedSources.contains(file.toString()) || source.matches(file)) {
+                    changed.add(file);
+                }
+            }
+        }
+        if (changed.isEmpty()) return;
 
-            } catch (Exception e) {
-                LOG.error("Failed to load references (took " + (System.currentTimeMillis() - startTime) + "ms)", e);
-            } finally {
-                isLoading = false;
+        long request;
+        synchronized (this) {
+            if (project.isDisposed() || !source.equals(acquiredSource)) return;
+            isLoading = true;
+            request = ++loadRequests;
+        }
+        publishWhenDone(request, ReferenceIndexStore.getInstance().update(source, project, changed), true);
+    }
+
+    private void publishWhenDone(long request, CompletableFuture<ReferenceIndex> load, boolean sourcesChanged) {
+        load.whenComplete((newIndex, error) -> {
+            boolean latest;
+            synchronized (this) {
+                // A newer request is still running; its listeners fire when it finishes
+                latest = request == loadRequests;
+                if (latest) {
+                    if (newIndex != null) {
+                        // Publish with a single swap
+                        index.set(newIndex);
+                        isLoaded = true;
+                    }
+                    isLoading = false;
+                }
+            }
+            if (latest) {
                 notifyLoadListeners();
+                if (sourcesChanged && newIndex != null) {
+                    for (Runnable listener : changeListeners) {
+                        listener.run();
+                    }
+                }
             }
         });
     }
 
+    /**
+     * Runs the listener whenever edits to the source files were applied to the references, until the
+     * parent is disposed. The listener is called on a background thread.
+     */
+    public void addChangeListener(Runnable listener, Disposable parent) {
+        changeListeners.add(listener);
+        Disposer.register(parent, () -> changeListeners.remove(listener));
+    }
+
+    /**
+     * Runs the callback once references are loaded and no reload is in progress.
+     */
     public void onLoaded(Runnable callback) {
-        if (isLoaded) {
-            callback.run();
-        } else {
-            synchronized (loadListeners) {
-                if (isLoaded) {
-                    callback.run();
-                } else {
-                    loadListeners.add(callback);
-                }
+        synchronized (loadListeners) {
+            if (!isLoaded || isLoading) {
+                loadListeners.add(callback);
+                return;
             }
         }
+        callback.run();
     }
 
     private void notifyLoadListeners() {
@@ -143,160 +228,223 @@ public final class ReferenceDataService {
         }
     }
 
-    private List<ReferenceItem> loadFromJavaFile(Path path) {
-        // Try PSI parsing first if Java plugin is available
-        if (JAVA_AVAILABLE) {
-            try {
-                List<ReferenceItem> items = loadWithPsiParser(path);
-                if (!items.isEmpty()) {
-                    LOG.info("Successfully parsed via PSI: " + path);
-                    return items;
-                }
-            } catch (Exception e) {
-                LOG.warn("Failed to parse Java file via PSI: " + path, e);
-            }
-        }
-
-        // Fallback to regex parser (works in all IDEs)
-        try {
-            LOG.info("Using regex parser for: " + path);
-            JavaConstantParser parser = new JavaConstantParser();
-            List<ReferenceItem> loaded = parser.parseJavaFile(path);
-            if (loaded != null) {
-                return loaded;
-            }
-        } catch (Exception e) {
-            LOG.warn("Failed to parse Java file: " + path, e);
-        }
-        return Collections.emptyList();
-    }
-    
-    private List<ReferenceItem> loadWithPsiParser(Path path) {
-        // This method is only called when JAVA_AVAILABLE is true
-        // Use a separate helper class to avoid loading PSI classes when Java isn't available
-        return PsiParserHelper.parse(project, path);
+    public List<ReferenceItem> search(String query) {
+        return search(query, -1);
     }
 
-    private void buildIndex() {
-        codeIndex.clear();
-
-        for (ReferenceItem item : references) {
-            String codeLower = item.getCodeLower();
-            if (codeLower == null) {
-                continue;
-            }
-
-            codeIndex.computeIfAbsent(codeLower, k -> new ArrayList<>()).add(item);
+    public List<ReferenceItem> search(String query, int limit) {
+        SearchResult result = searchResult(null, query, limit);
+        return result.getItems(0, result.size());
+    }
 
-            String valueLower = item.getValueLower();
-            if (valueLower != null && !valueLower.isEmpty()) {
-                codeIndex.computeIfAbsent(valueLower, k -> new ArrayList<>()).add(item);
-            }
+    /**
+     * Searches within a typing session; see {@link SearchSession}.
+     */
+    public List<ReferenceItem> search(SearchSession session, String query) {
+        SearchResult result = searchResult(session, query, -1);
+        return result.getItems(0, result.size());
+    }
 
-            String[] parts = CODE_SPLIT_PATTERN.split(codeLower);
-            for (String part : parts) {
-                if (!part.isEmpty()) {
-                    codeIndex.computeIfAbsent(part, k -> new ArrayList<>()).add(item);
-                }
-            }
-        }
+    public List<SearchHit> searchRanked(String query, int limit) {
+        return searchRanked(null, query, limit);
     }
 
-    public List<ReferenceItem> search(String query) {
-        return search(query, -1);
+    /**
+     * Searches the references and returns hits ordered from best to worst match; see {@link #searchResult}.
+     */
+    public List<SearchHit> searchRanked(@Nullable SearchSession session, String query, int limit) {
+        return searchResult(session, query, limit).toHits();
     }
 
-    public List<ReferenceItem> search(String query, int limit) {
+    /**
+     * Searches the references and returns the ids of the hits ordered from best to worst match.
+     * With a positive limit only the best {@code limit} hits are kept, using a bounded heap
+     * rather than sorting the full match set.
+     * If a session is given and the query extends its previous query, only the previous matches are re-checked.
+     * <p>
+     * Results are cached per snapshot by normalized query and limit, so repeated searches from the popup, the
+     * browser or any other caller are answered without searching; see {@link #getQueryCacheHits()}.
+     * <p>
+     * A search run under a progress indicator stops with a {@link ProcessCanceledException} soon after the indicator
+     * is cancelled, so a superseded search does not keep competing for the CPU. The session is then left unchanged.
+     */
+    public SearchResult searchResult(@Nullable SearchSession session, String query, int limit) {
         loadReferencesAsync();
 
         if (query == null || query.trim().isEmpty()) {
-            return Collections.emptyList();
+            return SearchResult.EMPTY;
         }
 
         if (!isLoaded) {
-            return Collections.emptyList();
+            return SearchResult.EMPTY;
         }
 
-        lock.readLock().lock();
-        long searchStart = System.currentTimeMillis();
-        try {
-            String normalizedQuery = query.toLowerCase().trim();
-            Set<ReferenceItem> results = new LinkedHashSet<>();
+        ReferenceIndex index = this.index.get();
+        String normalizedQuery = query.toLowerCase().trim();
+        long searchStart = System.nanoTime();
+        // Narrowing within a session yields the same matches as a full search, so sessions share the cache
+        SearchResult cached = queryCache.get(index.getGeneration(), normalizedQuery, limit);
+        if (cached != null) {
+            return ReferenceSearch.recorded(metrics, ReferenceMetrics.SearchPath.CACHED, searchStart, cached);
+        }
+        SearchResult result = search(index, session, normalizedQuery, limit, metrics);
+        queryCache.put(index.getGeneration(), normalizedQuery, limit, result);
+        return result;
+    }
 
-            List<ReferenceItem> exactMatches = codeIndex.get(normalizedQuery);
-            if (exactMatches != null) {
-                results.addAll(exactMatches);
-            }
+    /**
+     * Returns the cached result of an earlier {@link #searchResult} call with the same query and limit on the
+     * current snapshot, or null. This never searches and is not counted as a cache lookup.
+     */
+    public @Nullable SearchResult getCachedResult(String query, int limit) {
+        if (query == null || !isLoaded) {
+            return null;
+        }
+        return queryCache.peek(index.get().getGeneration(), query.toLowerCase().trim(), limit);
+    }
 
-            if (limit > 0 && results.size() >= limit) {
-                return new ArrayList<>(results).subList(0, limit);
-            }
+    /**
+     * Returns how many searches were answered from the query cache.
+     */
+    public long getQueryCacheHits() {
+        return queryCache.getHits();
+    }
 
-            for (ReferenceItem item : references) {
-                String codeLower = item.getCodeLower();
-                String descriptionLower = item.getDescriptionLower();
-                String valueLower = item.getValueLower();
+    /**
+     * Returns how many searches missed the query cache and searched the index.
+     */
+    public long getQueryCacheMisses() {
+        return queryCache.getMisses();
+    }
 
-                if ((codeLower != null && codeLower.contains(normalizedQuery)) ||
-                    (descriptionLower != null && descriptionLower.contains(normalizedQuery)) ||
-                    (valueLower != null && valueLower.contains(normalizedQuery))) {
-                    results.add(item);
-                    if (limit > 0 && results.size() >= limit) break;
-                }
-            }
+    public int getQueryCacheSize() {
+        return queryCache.size();
+    }
 
-            if (limit > 0 && results.size() >= limit) {
-                return new ArrayList<>(results);
-            }
+    /**
+     * Returns the latency and result size histograms of the searches of this project.
+     */
+    public ReferenceMetrics getMetrics() {
+        return metrics;
+    }
 
-            if (results.isEmpty()) {
-                for (ReferenceItem item : references) {
-                    String codeLower = item.getCodeLower();
-                    if (codeLower != null && fuzzyMatch(normalizedQuery, codeLower)) {
-                        results.add(item);
-                        if (limit > 0 && results.size() >= limit) break;
-                    }
-                }
+    /**
+     * Describes the current snapshot, its last load, the query cache and the search histograms as plain text,
+     * for the Diagnostics tab and for attaching to bug reports.
+     */
+    public String getDiagnosticsReport() {
+        ReferenceIndex snapshot = index.get();
+        ReferenceIndexStore.SourceKey source;
+        synchronized (this) {
+            source = acquiredSource;
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("Source: ").append(source != null ? source : "<not loaded>").append('\n');
+        report.append("Items: ").append(snapshot.size()).append('\n');
+        report.append("Source files: ").append(snapshot.getSources().size()).append('\n');
+        report.append("Storage: ").append(snapshot.isMapped() ? "mapped" : "heap").append('\n');
+        report.append("Estimated heap: ").append(snapshot.estimateHeapBytes() / 1024).append(" KB\n");
+        report.append("Generation: ").append(snapshot.getGeneration()).append('\n');
+
+        ReferenceIndexStore.LoadReport load = source != null ? ReferenceIndexStore.getInstance().getLoadReport(source) : null;
+        report.append("\nLast load\n");
+        if (load == null) {
+            report.append("  none finished yet\n");
+        } else {
+            report.append("  Kind: ").append(load.getKind()).append('\n');
+            report.append("  Total: ").append(load.getTotalMillis()).append(" ms (cache ").append(load.getCacheMillis())
+                .append(" ms, parsing ").append(load.getParseMillis()).append(" ms, indexing ").append(load.getIndexMillis())
+                .append(" ms)\n");
+            report.append("  Items: ").append(load.getItemCount()).append(", storage: ")
+                .append(load.isMapped() ? "mapped" : "heap").append('\n');
+            for (Map.Entry<String, Long> file : load.getFileParseMillis().entrySet()) {
+                report.append("  ").append(file.getValue()).append(" ms  ").append(file.getKey()).append('\n');
             }
+        }
 
-            return new ArrayList<>(results);
-        } finally {
-            long duration = System.currentTimeMillis() - searchStart;
-            if (duration > 10) {
-                LOG.debug("Search for '" + query + "' took " + duration + "ms");
-            }
-            lock.readLock().unlock();
+        report.append("\nQuery cache\n");
+        report.append("  Hits: ").append(getQueryCacheHits()).append(", misses: ").append(getQueryCacheMisses())
+            .append(", entries: ").append(getQueryCacheSize()).append('\n');
+
+        report.append("\nSearch latency (microseconds)\n");
+        report.append(String.format("  %-10s %8s %10s %10s %10s %10s %10s%n", "Path", "Count", "Mean", "p50", "p90", "p99", "Max"));
+        for (ReferenceMetrics.SearchPath path : ReferenceMetrics.SearchPath.values()) {
+            appendHistogram(report, path.name().toLowerCase(), metrics.getSearchLatency(path));
         }
+        report.append("\nResults per search\n");
+        appendHistogram(report, "results", metrics.getResultCounts());
+        return report.toString();
     }
 
-    private boolean fuzzyMatch(String query, String target) {
-        int queryIdx = 0;
-        int targetIdx = 0;
-        int queryLen = query.length();
-        int targetLen = target.length();
+    private static void appendHistogram(StringBuilder report, String label, Histogram histogram) {
+        report.append(String.format("  %-10s %8d %10.0f %10d %10d %10d %10d%n", label, histogram.getCount(),
+            histogram.getMean(), histogram.getPercentile(0.5), histogram.getPercentile(0.9),
+            histogram.getPercentile(0.99), histogram.getMax()));
+    }
 
-        while (queryIdx < queryLen && targetIdx < targetLen) {
-            if (query.charAt(queryIdx) == target.charAt(targetIdx)) {
-                queryIdx++;
-            }
-            targetIdx++;
-        }
-        return queryIdx == queryLen;
+    /**
+     * Runs a search without the query cache, recording it in the given metrics if any.
+     */
+    private SearchResult search(ReferenceIndex index, @Nullable SearchSession session, String normalizedQuery, int limit,
+                                @Nullable ReferenceMetrics metrics) {
+        boolean parallel = ReferenceSettingsState.getInstance().useParallelSearch;
+        return ReferenceSearch.search(index, session, normalizedQuery, limit, parallel, metrics);
     }
 
+    /**
+     * Returns every loaded reference. The list is immutable and unaffected by later reloads.
+     */
     public List<ReferenceItem> getAllReferences() {
         loadReferencesAsync();
         if (!isLoaded) return Collections.emptyList();
+        return index.get().getItems();
+    }
 
-        lock.readLock().lock();
-        try {
-            return Collections.unmodifiableList(references);
-        } finally {
-            lock.readLock().unlock();
-        }
+    /**
+     * Returns the current index snapshot, which stays consistent for as long as the caller holds it.
+     */
+    public ReferenceIndex getSnapshot() {
+        return index.get();
     }
 
     public boolean isLoaded() {
         return isLoaded;
     }
+
+    /**
+     * Runs a short mix of searches built from the loaded references, so the search path is compiled and the indexes
+     * built on first use exist before the first real query; see {@link SearchWarmUp}. The searches bypass the query
+     * cache and its counts. This stops early when the references are reloaded or the project closes.
+     */
+    public void warmUp() {
+        if (!isLoaded) return;
+        ReferenceIndex snapshot = index.get();
+        List<String> queries = SearchWarmUp.queriesFor(snapshot);
+        long start = System.nanoTime();
+        int searches = 0;
+        for (int round = 0; round < SearchWarmUp.MAX_ROUNDS; round++) {
+            for (String query : queries) {
+                for (int limit : SearchWarmUp.LIMITS) {
+                    if (project.isDisposed() || index.get() != snapshot
+                            || System.nanoTime() - start > SearchWarmUp.BUDGET_NANOS) {
+                        LOG.debug("Search warm-up stopped after " + searches + " searches");
+                        return;
+                    }
+                    search(snapshot, null, query, limit, null);
+                    searches++;
+                }
+            }
+        }
+        LOG.debug("Search warm-up ran " + searches + " searches in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            if (acquiredSource != null) {
+                ReferenceIndexStore.getInstance().release(acquiredSource);
+                acquiredSource = null;
+            }
+        }
+    }
 }
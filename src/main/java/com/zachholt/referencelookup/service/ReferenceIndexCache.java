@@ -0,0 +1,324 @@
+package com.zachholt.referencelookup.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.zachholt.referencelookup.index.IndexIO;
+import com.zachholt.referencelookup.index.MappedReferenceStore;
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary cache of parsed references and their prebuilt indexes, stored under the IDE system directory.
+ * <p>
+ * Entries are keyed by the path, size, modification time and content hash of every source file, so unchanged
+ * reference files are restored at startup without parsing or indexing them again.
+ * <p>
+ * With mapped storage the cache file holds a {@link MappedReferenceStore} instead, which is mapped in place
+ * rather than read onto the heap.
+ */
+final class ReferenceIndexCache {
+    private static final Logger LOG = Logger.getInstance(ReferenceIndexCache.class);
+
+    private static final int MAGIC = 0x52464958; // "RFIX"
+    private static final int MAPPED_MAGIC = 0x524D4150; // "RMAP"
+    // Bump whenever the parsers or the index layout change so that existing cache files are ignored.
+    // Guards both cache kinds: the mapped store layout has no version of its own.
+    // 4: mapped store written by the streaming writer
+    // 5: lexer-based regex parser
+    private static final int FORMAT_VERSION = 5;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path cacheDir;
+
+    ReferenceIndexCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    static ReferenceIndexCache createDefault() {
+        return new ReferenceIndexCache(Path.of(PathManager.getSystemPath(), "reference-lookup", "index-cache"));
+    }
+
+    /**
+     * Returns the cached snapshot for the key, or null if there is none or it was written for a different file state.
+     */
+    @Nullable
+    ReferenceIndex read(Key key, long generation) {
+        Path file = fileFor(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!key.equals(Key.readFrom(in))) {
+                return null;
+            }
+            return ReferenceIndex.readFrom(in, generation);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Ignoring unreadable reference index cache: " + file, e);
+            return null;
+        }
+    }
+
+    void write(Key key, ReferenceIndex index) {
+        Path file = fileFor(key);
+        try {
+            writeAtomically(file, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                key.writeTo(out);
+                index.writeTo(out);
+            });
+        } catch (IOException e) {
+            LOG.warn("Failed to write reference index cache: " + file, e);
+        }
+    }
+
+    /**
+     * Maps the cached store for the key, or returns null if there is none or it was written for a different file state.
+     */
+    @Nullable
+    ReferenceIndex readMapped(Key key, long generation) {
+        Path file = mappedFileFor(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if (in.readInt() != MAPPED_MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!key.equals(Key.readFrom(in))) {
+                return null;
+            }
+            long storeStart = channel.position();
+            return ReferenceIndex.mapped(MappedReferenceStore.map(channel, storeStart, channel.size() - storeStart), generation);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Ignoring unreadable mapped reference store: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the items as a mapped store for the key. The items are passed to the store writer as they are
+     * produced. Returns false if the store could not be written.
+     */
+    boolean writeMapped(Key key, ItemProducer items) {
+        Path file = mappedFileFor(key);
+        try {
+            writeAtomically(file, out -> {
+                out.writeInt(MAPPED_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                key.writeTo(out);
+                MappedReferenceStore.Writer writer = new MappedReferenceStore.Writer(out);
+                items.produce(writer);
+                writer.finish();
+            });
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("Failed to write mapped reference store: " + file, e);
+            return false;
+        }
+        deleteStaleMappedFiles(key, file);
+        return true;
+    }
+
+    private void writeAtomically(Path file, CacheWriter writer) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path tempFile = Files.createTempFile(cacheDir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE))) {
+                writer.write(out);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void deleteStaleMappedFiles(Key key, Path current) {
+        // Older versions of the same source may still be mapped by a live snapshot; on Windows deletion then fails
+        // and is retried after the next change
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(cacheDir, pathPrefix(key) + "-*.map")) {
+            for (Path file : stale) {
+                if (!file.equals(current)) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Best effort cleanup
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Could not clean up stale mapped reference stores: " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(Key key) {
+        return cacheDir.resolve(pathPrefix(key) + ".bin");
+    }
+
+    private Path mappedFileFor(Key key) {
+        // Every file state gets its own name so that a store still mapped by an old snapshot is never overwritten
+        return cacheDir.resolve(pathPrefix(key) + "-" + Long.toHexString(key.contentHash()) + ".map");
+    }
+
+    private static String pathPrefix(Key key) {
+        return Integer.toHexString(key.pathHash());
+    }
+
+    private interface CacheWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface ItemProducer {
+        void produce(MappedReferenceStore.Writer writer) throws IOException;
+    }
+
+    /**
+     * Identifies one state of a set of reference files as seen by one parser.
+     */
+    static final class Key {
+        private final List<FileState> files;
+        private final String parser;
+
+        private Key(List<FileState> files, String parser) {
+            this.files = files;
+            this.parser = parser;
+        }
+
+        static Key of(List<Path> files, String parser) throws IOException {
+            List<FileState> states = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Path absolute = file.toAbsolutePath().normalize();
+                states.add(new FileState(
+                    absolute.toString(),
+                    Files.size(absolute),
+                    Files.getLastModifiedTime(absolute).toMillis(),
+                    hash(absolute)
+                ));
+            }
+            return new Key(states, parser);
+        }
+
+        private static long hash(Path file) throws IOException {
+            // CRC32C is hardware accelerated, so hashing stays far cheaper than re-parsing
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    crc.update(buffer);
+                    buffer.clear();
+                }
+            }
+            return crc.getValue();
+        }
+
+        int pathHash() {
+            int hash = 1;
+            for (FileState file : files) {
+                hash = 31 * hash + file.path.hashCode();
+            }
+            return hash;
+        }
+
+        long contentHash() {
+            long hash = 1;
+            for (FileState file : files) {
+                hash = 31 * hash + file.contentHash;
+            }
+            return hash;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(files.size());
+            for (FileState file : files) {
+                IndexIO.writeString(out, file.path);
+                out.writeLong(file.size);
+                out.writeLong(file.modified);
+                out.writeLong(file.contentHash);
+            }
+            IndexIO.writeString(out, parser);
+        }
+
+        static Key readFrom(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            List<FileState> files = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                files.add(new FileState(IndexIO.readString(in), in.readLong(), in.readLong(), in.readLong()));
+            }
+            return new Key(files, IndexIO.readString(in));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return files.equals(other.files) && Objects.equals(parser, other.parser);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(files, parser);
+        }
+    }
+
+    private static final class FileState {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final long contentHash;
+
+        FileState(String path, long size, long modified, long contentHash) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileState)) return false;
+            FileState other = (FileState) o;
+            return size == other.size
+                && modified == other.modified
+                && contentHash == other.contentHash
+                && Objects.equals(path, other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, modified, contentHash);
+        }
+    }
+}
@@ -0,0 +1,678 @@
+package com.zachholt.referencelookup.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.zachholt.referencelookup.index.MappedReferenceStore;
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import com.zachholt.referencelookup.parser.JavaConstantParser;
+import com.zachholt.referencelookup.settings.ReferenceSettingsState;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-level owner of loaded reference indexes.
+ * <p>
+ * The settings are application-wide, so every open project would otherwise parse and hold its own copy of the
+ * same reference file. Project services instead {@link #acquire} the source they need and share one snapshot
+ * per source; the entry is dropped once the last project releases it.
+ */
+public final class ReferenceIndexStore implements Disposable {
+    private static final Logger LOG = Logger.getInstance(ReferenceIndexStore.class);
+
+    // Check once if Java plugin is available
+    private static final boolean JAVA_AVAILABLE = isJavaPluginAvailable();
+
+    private static final int PARSER_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private final ReferenceIndexCache indexCache = ReferenceIndexCache.createDefault();
+    // Generations are unique across sources so a snapshot can always be told apart from its predecessor
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<SourceKey, Entry> entries = new HashMap<>();
+
+    // Idle workers of both pools time out, so they cost nothing between loads; both are shut down with the store
+    private final ForkJoinPool regexParsePool = new ForkJoinPool(PARSER_PARALLELISM);
+    private final ExecutorService psiParseExecutor =
+        AppExecutorUtil.createBoundedApplicationPoolExecutor("Reference Lookup PSI Parser", PARSER_PARALLELISM);
+
+    public static ReferenceIndexStore getInstance() {
+        return ApplicationManager.getApplication().getService(ReferenceIndexStore.class);
+    }
+
+    private static boolean isJavaPluginAvailable() {
+        try {
+            Class.forName("com.intellij.psi.PsiJavaFile");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Registers one more user of the source. Every call must be paired with {@link #release}.
+     */
+    public synchronized void acquire(SourceKey key) {
+        entries.computeIfAbsent(key, k -> new Entry()).refCount++;
+    }
+
+    public synchronized void release(SourceKey key) {
+        Entry entry = entries.get(key);
+        if (entry != null && --entry.refCount <= 0) {
+            entries.remove(key);
+            if (!entry.watches.isEmpty()) {
+                LocalFileSystem.getInstance().removeWatchedRoots(entry.watches);
+            }
+        }
+    }
+
+    /**
+     * Marks every loaded source as outdated. The next {@link #load} of each source parses it again,
+     * and concurrent loads of the same source share that single parse.
+     */
+    public synchronized void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * Returns the snapshot of an acquired source, loading it in the background if needed.
+     * Callers asking for the same source while it loads share one load. With {@code refresh} a new load
+     * is started even if a snapshot is available.
+     *
+     * @param requester project used for PSI parsing
+     */
+    public synchronized CompletableFuture<ReferenceIndex> load(SourceKey key, Project requester, boolean refresh) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            throw new IllegalStateException("Source not acquired: " + key);
+        }
+        if (entry.future == null || entry.stale || entry.future.isCompletedExceptionally() || refresh) {
+            entry.stale = false;
+            return setFuture(key, entry, startBackgroundLoad(key, requester, generations.incrementAndGet()));
+        }
+        return entry.future;
+    }
+
+    /**
+     * Publishes the pending snapshot of a source. A failed load or update marks the source stale once it completes,
+     * so that the next request of the source loads it again rather than sharing or building on the failure.
+     */
+    private CompletableFuture<ReferenceIndex> setFuture(SourceKey key, Entry entry, CompletableFuture<ReferenceIndex> future) {
+        entry.future = future;
+        future.whenComplete((index, error) -> {
+            if (error != null) {
+                forgetFailed(key, future);
+            }
+        });
+        return future;
+    }
+
+    private synchronized void forgetFailed(SourceKey key, CompletableFuture<ReferenceIndex> future) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.future == future) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * Returns the timings of the last load or update of an acquired source, or null if none has finished yet.
+     */
+    @Nullable
+    public synchronized LoadReport getLoadReport(SourceKey key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.report : null;
+    }
+
+    private synchronized void setLoadReport(SourceKey key, LoadReport report) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.report = report;
+        }
+    }
+
+    /**
+     * Applies changes of individual files to the snapshot of an acquired source, re-parsing only those files.
+     * A file that no longer exists is removed from the snapshot. Files whose size and modification time match
+     * the last load or update are skipped, so projects reporting the same change share one update. The files are
+     * checked in the background, because changes are reported on the EDT, and their state is recorded only once
+     * the update succeeds. Mapped snapshots cannot be patched and are loaded again instead.
+     *
+     * @param requester project used for PSI parsing
+     */
+    public synchronized CompletableFuture<ReferenceIndex> update(SourceKey key, Project requester, Collection<Path> changedFiles) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            throw new IllegalStateException("Source not acquired: " + key);
+        }
+        if (entry.future == null || entry.stale || entry.future.isCompletedExceptionally()) {
+            return load(key, requester, false);
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (Path file : changedFiles) {
+            Path absolute = file.toAbsolutePath().normalize();
+            if (!files.contains(absolute)) {
+                files.add(absolute);
+            }
+        }
+        if (files.isEmpty()) {
+            return entry.future;
+        }
+
+        long updateGeneration = generations.incrementAndGet();
+        // An update queued behind one that fails loads the source again instead of patching the failure
+        return setFuture(key, entry, entry.future.exceptionally(error -> null).thenComposeAsync(current -> {
+            if (current == null) {
+                return startBackgroundLoad(key, requester, updateGeneration);
+            }
+            Map<Path, Long> changed = changedStamps(key, files);
+            if (changed.isEmpty()) {
+                return CompletableFuture.completedFuture(current);
+            }
+            if (current.isMapped()) {
+                return startBackgroundLoad(key, requester, updateGeneration);
+            }
+            ReferenceIndex updated = applyChanges(key, current, new ArrayList<>(changed.keySet()), requester, updateGeneration);
+            recordStamps(key, changed);
+            return CompletableFuture.completedFuture(updated);
+        }, AppExecutorUtil.getAppExecutorService()));
+    }
+
+    /**
+     * Returns the current stamps of the files whose size or modification time differ from the last load or update.
+     */
+    private Map<Path, Long> changedStamps(SourceKey key, List<Path> files) {
+        Map<Path, Long> stamps = new LinkedHashMap<>();
+        for (Path file : files) {
+            stamps.put(file, stampOf(file));
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                stamps.entrySet().removeIf(stamp -> Objects.equals(entry.stamps.get(stamp.getKey().toString()), stamp.getValue()));
+            }
+        }
+        return stamps;
+    }
+
+    private synchronized void recordStamps(SourceKey key, Map<Path, Long> stamps) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            stamps.forEach((file, stamp) -> entry.stamps.put(file.toString(), stamp));
+        }
+    }
+
+    private ReferenceIndex applyChanges(SourceKey key, ReferenceIndex current, List<Path> files, Project requester,
+                                        long updateGeneration) {
+        long startTime = System.currentTimeMillis();
+        Map<String, Long> fileParseMillis = new ConcurrentHashMap<>();
+        ReferenceIndex updated = current;
+        long parseDuration = 0;
+        long indexDuration = 0;
+        for (Path file : files) {
+            long parseStart = System.currentTimeMillis();
+            List<ReferenceItem> items = Files.isRegularFile(file) ? parseSource(requester, file, fileParseMillis) : Collections.emptyList();
+            long indexStart = System.currentTimeMillis();
+            updated = updated.withSource(file.toString(), items, updateGeneration);
+            parseDuration += indexStart - parseStart;
+            indexDuration += System.currentTimeMillis() - indexStart;
+        }
+        long totalDuration = System.currentTimeMillis() - startTime;
+        LOG.info("Updated " + files.size() + " changed reference file(s) in " + totalDuration + "ms, " + updated.size() + " reference items");
+        setLoadReport(key, new LoadReport("update of " + files.size() + " file(s)", 0, parseDuration, indexDuration,
+            totalDuration, updated.size(), updated.isMapped(), fileParseMillis));
+        // The disk cache is not rewritten here: its key hashes every file, which would make each update cost as
+        // much as a full load. The next start misses the cache once and stores a fresh snapshot.
+        return updated;
+    }
+
+    @Nullable
+    private static Long stampOf(Path file) {
+        try {
+            return Files.size(file) * 31 + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the state of the loaded files and asks the IDE to watch them, so that changes made outside
+     * the IDE reach {@link #update} as VFS events.
+     */
+    private synchronized void trackFiles(SourceKey key, List<Path> files) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry.stamps.clear();
+        List<String> flatRoots = new ArrayList<>(files.size());
+        for (Path file : files) {
+            entry.stamps.put(file.toString(), stampOf(file));
+            flatRoots.add(file.toString());
+        }
+        List<String> recursiveRoots = new ArrayList<>();
+        for (Path root : ReferenceSourceResolver.directoryRoots(key.sources)) {
+            recursiveRoots.add(root.toString());
+        }
+        entry.watches = LocalFileSystem.getInstance().replaceWatchedRoots(entry.watches, recursiveRoots, flatRoots);
+    }
+
+    private CompletableFuture<ReferenceIndex> startBackgroundLoad(SourceKey key, Project requester, long loadGeneration) {
+        CompletableFuture<ReferenceIndex> future = new CompletableFuture<>();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                LOG.info("Starting background load of references... (Java available: " + JAVA_AVAILABLE + ")");
+
+                List<ReferenceItem> loadedItems = new ArrayList<>();
+                ReferenceIndex cachedIndex = null;
+                ReferenceIndex streamedIndex = null;
+                ReferenceIndexCache.Key cacheKey = null;
+                String cacheStatus = "none";
+                long cacheDuration = 0;
+                long parseDuration = 0;
+                Map<String, Long> fileParseMillis = new ConcurrentHashMap<>();
+
+                if (!key.sources.isEmpty()) {
+                    List<String> missing = new ArrayList<>();
+                    List<Path> files = ReferenceSourceResolver.resolve(key.sources, missing);
+                    for (String source : missing) {
+                        LOG.warn("Reference source not found: " + source);
+                    }
+                    trackFiles(key, files);
+                    if (!files.isEmpty()) {
+                        // Make sure the files are known to the VFS so that later changes produce events
+                        LocalFileSystem.getInstance().refreshNioFiles(files);
+                        LOG.info("Loading references from " + files.size() + " file(s)");
+                        long cacheStart = System.currentTimeMillis();
+                        cacheKey = cacheKeyFor(files);
+                        if (cacheKey != null) {
+                            cachedIndex = key.mapped
+                                ? indexCache.readMapped(cacheKey, loadGeneration)
+                                : indexCache.read(cacheKey, loadGeneration);
+                        }
+                        cacheDuration = System.currentTimeMillis() - cacheStart;
+                        cacheStatus = (cachedIndex != null ? "hit" : "miss") + " in " + cacheDuration + "ms";
+                        if (cachedIndex == null) {
+                            long parseStart = System.currentTimeMillis();
+                            // Stream parsed items straight into the mapped store so they never all sit on the heap
+                            if (key.mapped && cacheKey != null
+                                && indexCache.writeMapped(cacheKey, writer -> streamAll(requester, files, writer, fileParseMillis))) {
+                                streamedIndex = indexCache.readMapped(cacheKey, loadGeneration);
+                            }
+                            if (streamedIndex == null) {
+                                loadedItems = parseAll(requester, files, fileParseMillis);
+                            }
+                            parseDuration = System.currentTimeMillis() - parseStart;
+                        }
+                    }
+                } else {
+                    LOG.info("No reference file configured in settings");
+                }
+
+                long indexStart = System.currentTimeMillis();
+                ReferenceIndex newIndex = cachedIndex != null ? cachedIndex : streamedIndex;
+                if (newIndex == null) {
+                    newIndex = ReferenceIndex.build(loadedItems, loadGeneration);
+                }
+                long indexDuration = System.currentTimeMillis() - indexStart;
+
+                long totalDuration = System.currentTimeMillis() - startTime;
+                LOG.info("Loaded " + newIndex.size() + " reference items in " + totalDuration + "ms (Parsing: " + parseDuration + "ms, Indexing: " + indexDuration + "ms, Cache: " + cacheStatus + ", Storage: " + (newIndex.isMapped() ? "mapped" : "heap") + ")");
+                setLoadReport(key, new LoadReport("cache " + (cachedIndex != null ? "hit" : cacheKey != null ? "miss" : "none"),
+                    cacheDuration, parseDuration, indexDuration, totalDuration, newIndex.size(), newIndex.isMapped(), fileParseMillis));
+                future.complete(newIndex);
+
+                // Written after publishing so that a cold start is not delayed by the cache
+                if (cachedIndex == null && cacheKey != null && !newIndex.isMapped()) {
+                    indexCache.write(cacheKey, newIndex);
+                }
+            } catch (Throwable e) {
+                LOG.error("Failed to load references (took " + (System.currentTimeMillis() - startTime) + "ms)", e);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops the parser pools and the file watches when the plugin is unloaded or the IDE exits. Parses already
+     * queued still finish, so that no load is left waiting; later loads fail.
+     */
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (!entry.watches.isEmpty()) {
+                    LocalFileSystem.getInstance().removeWatchedRoots(entry.watches);
+                }
+            }
+            entries.clear();
+        }
+        regexParsePool.shutdown();
+        psiParseExecutor.shutdown();
+    }
+
+    @Nullable
+    private ReferenceIndexCache.Key cacheKeyFor(List<Path> files) {
+        try {
+            // PSI and regex parsing can disagree, so results are cached per parser
+            return ReferenceIndexCache.Key.of(files, JAVA_AVAILABLE ? "psi" : "regex");
+        } catch (Exception e) {
+            LOG.warn("Could not compute cache key for: " + files, e);
+            return null;
+        }
+    }
+
+    /**
+     * Parses the files in parallel and concatenates their items in file order, so the merged index
+     * does not depend on which parse finishes first.
+     */
+    private List<ReferenceItem> parseAll(Project requester, List<Path> files, Map<String, Long> fileParseMillis) {
+        if (files.size() == 1) {
+            return parseSource(requester, files.get(0), fileParseMillis);
+        }
+        if (!JAVA_AVAILABLE) {
+            return regexParsePool.invoke(new ParseTask(requester, files, 0, files.size(), fileParseMillis));
+        }
+
+        // PSI parsing holds read actions, so it runs on a bounded pool rather than occupying every core
+        List<CompletableFuture<List<ReferenceItem>>> parses = new ArrayList<>(files.size());
+        for (Path file : files) {
+            parses.add(CompletableFuture.supplyAsync(() -> parseSource(requester, file, fileParseMillis), psiParseExecutor));
+        }
+        List<ReferenceItem> items = new ArrayList<>();
+        for (CompletableFuture<List<ReferenceItem>> parse : parses) {
+            items.addAll(parse.join());
+        }
+        return items;
+    }
+
+    /**
+     * Parses the files one after another into the writer. The regex parser hands over each item as it is read;
+     * PSI results are per file.
+     */
+    private void streamAll(Project requester, List<Path> files, MappedReferenceStore.Writer writer,
+                           Map<String, Long> fileParseMillis) throws IOException {
+        for (Path file : files) {
+            String source = file.toString();
+            long parseStart = System.currentTimeMillis();
+            if (JAVA_AVAILABLE) {
+                List<ReferenceItem> items = Collections.emptyList();
+                try {
+                    items = loadWithPsiParser(requester, file);
+                } catch (Exception e) {
+                    LOG.warn("Failed to parse Java file via PSI: " + file, e);
+                }
+                if (!items.isEmpty()) {
+                    for (ReferenceItem item : items) {
+                        item.setSource(source);
+                        writer.add(item);
+                    }
+                    fileParseMillis.put(source, System.currentTimeMillis() - parseStart);
+                    continue;
+                }
+            }
+
+            try {
+                new JavaConstantParser().parseJavaFile(file, item -> {
+                    item.setSource(source);
+                    try {
+                        writer.add(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // The store itself could not be written
+                throw e.getCause();
+            } catch (Exception e) {
+                LOG.warn("Failed to parse Java file: " + file, e);
+            }
+            fileParseMillis.put(source, System.currentTimeMillis() - parseStart);
+        }
+    }
+
+    private List<ReferenceItem> parseSource(Project requester, Path path, Map<String, Long> fileParseMillis) {
+        long parseStart = System.currentTimeMillis();
+        List<ReferenceItem> items = loadFromJavaFile(requester, path);
+        fileParseMillis.put(path.toString(), System.currentTimeMillis() - parseStart);
+        // Every item of a file shares one string, so provenance costs a reference per item
+        String source = path.toString();
+        for (ReferenceItem item : items) {
+            item.setSource(source);
+        }
+        return items;
+    }
+
+    private List<ReferenceItem> loadFromJavaFile(Project requester, Path path) {
+        // Try PSI parsing first if Java plugin is available
+        if (JAVA_AVAILABLE) {
+            try {
+                List<ReferenceItem> items = loadWithPsiParser(requester, path);
+                if (!items.isEmpty()) {
+                    LOG.info("Successfully parsed via PSI: " + path);
+                    return items;
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to parse Java file via PSI: " + path, e);
+            }
+        }
+
+        // Fallback to regex parser (works in all IDEs)
+        try {
+            LOG.info("Using regex parser for: " + path);
+            JavaConstantParser parser = new JavaConstantParser();
+            List<ReferenceItem> loaded = parser.parseJavaFile(path);
+            if (loaded != null) {
+                return loaded;
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to parse Java file: " + path, e);
+        }
+        return Collections.emptyList();
+    }
+
+    private List<ReferenceItem> loadWithPsiParser(Project requester, Path path) {
+        // This method is only called when JAVA_AVAILABLE is true
+        // Use a separate helper class to avoid loading PSI classes when Java isn't available
+        return PsiParserHelper.parse(requester, path);
+    }
+
+    /**
+     * Splits a range of files in halves until a single file remains, then joins the results in file order.
+     */
+    private final class ParseTask extends RecursiveTask<List<ReferenceItem>> {
+        private final Project requester;
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final Map<String, Long> fileParseMillis;
+
+        ParseTask(Project requester, List<Path> files, int from, int to, Map<String, Long> fileParseMillis) {
+            this.requester = requester;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.fileParseMillis = fileParseMillis;
+        }
+
+        @Override
+        protected List<ReferenceItem> compute() {
+            if (to - from == 1) {
+                return parseSource(requester, files.get(from), fileParseMillis);
+            }
+            int middle = (from + to) >>> 1;
+            ParseTask right = new ParseTask(requester, files, middle, to, fileParseMillis);
+            right.fork();
+            List<ReferenceItem> items = new ArrayList<>(new ParseTask(requester, files, from, middle, fileParseMillis).compute());
+            items.addAll(right.join());
+            return items;
+        }
+    }
+
+    private static final class Entry {
+        int refCount;
+        boolean stale;
+        CompletableFuture<ReferenceIndex> future;
+        // Size and modification time of each file as last parsed, by path
+        final Map<String, Long> stamps = new HashMap<>();
+        Set<LocalFileSystem.WatchRequest> watches = Collections.emptySet();
+        LoadReport report;
+    }
+
+    /**
+     * Timings of one load or update of a source, in milliseconds.
+     */
+    public static final class LoadReport {
+        private final String kind;
+        private final long cacheMillis;
+        private final long parseMillis;
+        private final long indexMillis;
+        private final long totalMillis;
+        private final int itemCount;
+        private final boolean mapped;
+        private final Map<String, Long> fileParseMillis;
+        private final long finishedAt = System.currentTimeMillis();
+
+        LoadReport(String kind, long cacheMillis, long parseMillis, long indexMillis, long totalMillis, int itemCount,
+                   boolean mapped, Map<String, Long> fileParseMillis) {
+            this.kind = kind;
+            this.cacheMillis = cacheMillis;
+            this.parseMillis = parseMillis;
+            this.indexMillis = indexMillis;
+            this.totalMillis = totalMillis;
+            this.itemCount = itemCount;
+            this.mapped = mapped;
+            // Slowest files first
+            Map<String, Long> sorted = new LinkedHashMap<>();
+            fileParseMillis.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+            this.fileParseMillis = Collections.unmodifiableMap(sorted);
+        }
+
+        /**
+         * Describes how the snapshot was produced, such as a cache hit or an update of changed files.
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        public long getCacheMillis() {
+            return cacheMillis;
+        }
+
+        public long getParseMillis() {
+            return parseMillis;
+        }
+
+        public long getIndexMillis() {
+            return indexMillis;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        public boolean isMapped() {
+            return mapped;
+        }
+
+        /**
+         * Returns the parse time of each parsed file by path, slowest first. Empty when the cache was hit.
+         */
+        public Map<String, Long> getFileParseMillis() {
+            return fileParseMillis;
+        }
+
+        public long getFinishedAt() {
+            return finishedAt;
+        }
+    }
+
+    /**
+     * Identifies a loadable reference source: the configured files, directories and globs, and how they are stored.
+     */
+    public static final class SourceKey {
+        private final List<String> sources;
+        private final boolean mapped;
+        private final ReferenceSourceResolver.SourceMatcher matcher;
+
+        public SourceKey(List<String> sources, boolean mapped) {
+            List<String> trimmed = new ArrayList<>(sources.size());
+            for (String source : sources) {
+                if (source != null && !source.trim().isEmpty()) {
+                    trimmed.add(source.trim());
+                }
+            }
+            this.sources = Collections.unmodifiableList(trimmed);
+            this.mapped = mapped;
+            this.matcher = new ReferenceSourceResolver.SourceMatcher(this.sources);
+        }
+
+        /**
+         * Returns whether a file is covered by the configured sources, including files that did not exist
+         * when the sources were last loaded.
+         */
+        public boolean matches(Path file) {
+            return matcher.matches(file);
+        }
+
+        public static SourceKey fromSettings() {
+            ReferenceSettingsState settings = ReferenceSettingsState.getInstance();
+            List<String> sources = new ArrayList<>();
+            sources.add(settings.referenceFilePath);
+            if (settings.additionalSources != null) {
+                sources.addAll(settings.additionalSources);
+            }
+            return new SourceKey(sources, settings.useMappedStorage);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SourceKey)) return false;
+            SourceKey other = (SourceKey) o;
+            return mapped == other.mapped && sources.equals(other.sources);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sources, mapped);
+        }
+
+        @Override
+        public String toString() {
+            return (sources.isEmpty() ? "<none>" : String.join(", ", sources)) + (mapped ? " (mapped)" : "");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.zachholt.referencelookup.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency and result size histograms of the searches of one {@link ReferenceDataService}.
+ * Searches are grouped by the last pass they needed, so a slow stage shows up as a slow path.
+ */
+public final class ReferenceMetrics {
+
+    public enum SearchPath {
+        /** Answered from the query cache. */
+        CACHED,
+        /** Answered by exact code or value matches alone. */
+        EXACT,
+        /** Needed the substring, multi-word and abbreviation passes. */
+        SUBSTRING,
+        /** Found no substring match and also ran the fuzzy pass. */
+        FUZZY
+    }
+
+    // Search latencies in microseconds
+    private final Map<SearchPath, Histogram> latencies = new EnumMap<>(SearchPath.class);
+    private final Histogram resultCounts = new Histogram();
+
+    ReferenceMetrics() {
+        for (SearchPath path : SearchPath.values()) {
+            latencies.put(path, new Histogram());
+        }
+    }
+
+    void recordSearch(SearchPath path, long nanos, int resultCount) {
+        latencies.get(path).record(nanos / 1000);
+        resultCounts.record(resultCount);
+    }
+
+    public Histogram getSearchLatency(SearchPath path) {
+        return latencies.get(path);
+    }
+
+    public Histogram getResultCounts() {
+        return resultCounts;
+    }
+
+    public void reset() {
+        for (Histogram histogram : latencies.values()) {
+            histogram.reset();
+        }
+        resultCounts.reset();
+    }
+}
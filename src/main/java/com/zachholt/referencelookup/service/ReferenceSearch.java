@@ -0,0 +1,206 @@
+package com.zachholt.referencelookup.service;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.zachholt.referencelookup.index.FuzzyMatcher;
+import com.zachholt.referencelookup.index.IntList;
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.index.SearchQuery;
+import com.zachholt.referencelookup.index.TopKCollector;
+import com.zachholt.referencelookup.index.TrigramIndex;
+import com.zachholt.referencelookup.model.MatchTier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * The search behind {@link ReferenceDataService}, run on one snapshot. It holds no project or settings state,
+ * so it also runs outside the IDE, as in the benchmarks.
+ */
+final class ReferenceSearch {
+    private static final Logger LOG = Logger.getInstance(ReferenceSearch.class);
+    // Items scored between checks for cancellation; a power of two
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private ReferenceSearch() {
+    }
+
+    /**
+     * Runs a search, recording it in the given metrics if any. With {@code parallel}, large passes are split into
+     * shards; see {@link ParallelScan}.
+     */
+    static SearchResult search(ReferenceIndex index, @Nullable SearchSession session, String normalizedQuery, int limit,
+                               boolean parallel, @Nullable ReferenceMetrics metrics) {
+        long searchStart = System.nanoTime();
+        try {
+            SearchQuery searchQuery = new SearchQuery(normalizedQuery);
+
+            // Exact code/value matches outrank everything else, so enough of them answer the query alone.
+            // Sessions need the complete match set for the next keystroke, so they skip this shortcut.
+            int[] exactMatches = index.getExactMatches(normalizedQuery);
+            if (session == null && limit > 0 && exactMatches.length >= limit) {
+                TopKCollector exactHits = new TopKCollector(limit);
+                int exactCount = 0;
+                for (int id : exactMatches) {
+                    int score = index.score(id, searchQuery);
+                    if (MatchTier.fromScore(score) == MatchTier.EXACT) {
+                        exactHits.offer(id, score);
+                        exactCount++;
+                    }
+                }
+                if (exactCount >= limit) {
+                    return recorded(metrics, ReferenceMetrics.SearchPath.EXACT, searchStart,
+                            SearchResult.of(index, exactHits));
+                }
+            }
+
+            TopKCollector collector = new TopKCollector(limit);
+            IntList matched = session != null ? new IntList() : null;
+            SearchSession.Scope scope = session != null ? session.scopeFor(index.getGeneration(), normalizedQuery) : null;
+
+            // A query without substring matches cannot gain any by getting longer, so a fuzzy scope skips this
+            if (scope == null || !scope.fuzzy) {
+                if (scope != null) {
+                    collectAll(index, parallel, collector, matched, scope.ids, searchQuery);
+                } else if (TrigramIndex.supports(normalizedQuery)) {
+                    // Only items sharing every trigram with the query can contain it
+                    collectAll(index, parallel, collector, matched, index.candidates(normalizedQuery), searchQuery);
+                } else {
+                    collectAll(index, parallel, collector, matched, null, searchQuery);
+                }
+            }
+
+            ProgressManager.checkCanceled();
+            boolean fuzzy = collector.isEmpty();
+
+            // Word and abbreviation matches are posting list lookups, so they are checked from scratch on every query.
+            // Items that also contain the query were collected above with a better score.
+            IntList extra = new IntList();
+            if (index.isMapped()) {
+                // Mapped snapshots have no posting lists, so abbreviations are checked on every item, split like the
+                // substring pass. Word matches need the term dictionary, which mapped snapshots do not build.
+                if (ReferenceIndex.supportsAbbreviations(normalizedQuery)) {
+                    scanRows(parallel, () -> id -> {
+                        int score = index.abbreviationScore(id, normalizedQuery);
+                        return score >= 0 && index.score(id, searchQuery) < 0 ? score : -1;
+                    }, null, index.size(), collector, extra);
+                    if (matched != null) {
+                        for (int i = 0; i < extra.size(); i++) {
+                            matched.add(extra.get(i));
+                        }
+                    }
+                }
+            } else {
+                ReferenceIndex.HitConsumer collectExtra = (id, score) -> {
+                    if (index.score(id, searchQuery) < 0) {
+                        extra.add(id);
+                        collector.offer(id, score);
+                        if (matched != null) {
+                            matched.add(id);
+                        }
+                    }
+                };
+                // Abbreviations have no separators and word queries have several words, so at most one of these
+                // reports items, in id order
+                index.wordMatches(searchQuery, collectExtra);
+                index.abbreviationMatches(searchQuery, collectExtra);
+            }
+
+            if (fuzzy) {
+                ProgressManager.checkCanceled();
+                int[] extraIds = extra.toArray();
+                // The allowed edit distance grows with the query, so previous fuzzy matches do not bound the new ones
+                if (index.isMapped()) {
+                    if (new FuzzyMatcher(normalizedQuery).isEnabled()) {
+                        scanRows(parallel, () -> {
+                            // Matchers keep state, so every shard needs its own
+                            FuzzyMatcher matcher = new FuzzyMatcher(normalizedQuery);
+                            return id -> {
+                                int score = index.fuzzyScore(id, matcher);
+                                return score >= 0 && !isExtra(extraIds, id) ? score : -1;
+                            };
+                        }, null, index.size(), collector, matched);
+                    }
+                } else {
+                    index.fuzzyMatches(searchQuery, (id, score) -> {
+                        if (isExtra(extraIds, id)) {
+                            return;
+                        }
+                        collector.offer(id, score);
+                        if (matched != null) {
+                            matched.add(id);
+                        }
+                    });
+                }
+            }
+
+            if (session != null) {
+                session.update(index.getGeneration(), normalizedQuery, matched.toArray(), fuzzy);
+            }
+
+            return recorded(metrics, fuzzy ? ReferenceMetrics.SearchPath.FUZZY : ReferenceMetrics.SearchPath.SUBSTRING,
+                    searchStart, SearchResult.of(index, collector));
+        } finally {
+            long duration = (System.nanoTime() - searchStart) / 1_000_000;
+            if (duration > 10) {
+                LOG.debug("Search for '" + normalizedQuery + "' took " + duration + "ms");
+            }
+        }
+    }
+
+    static SearchResult recorded(@Nullable ReferenceMetrics metrics, ReferenceMetrics.SearchPath path,
+                          long startNanos, SearchResult result) {
+        if (metrics != null) {
+            metrics.recordSearch(path, System.nanoTime() - startNanos, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * Scores the given ids, or every id if ids is null.
+     */
+    private static void collectAll(ReferenceIndex index, boolean parallel, TopKCollector collector,
+                                   @Nullable IntList matched, @Nullable int[] ids, SearchQuery query) {
+        int count = ids != null ? ids.length : index.size();
+        scanRows(parallel, () -> id -> index.score(id, query), ids, count, collector, matched);
+    }
+
+    /**
+     * Scores the given ids, or all ids below {@code count} if ids is null, offering every match to the collector and
+     * adding it to matched. With {@code parallel}, large passes are split into shards with a scorer each.
+     */
+    private static void scanRows(boolean parallel, Supplier<ParallelScan.RowScorer> scorers, @Nullable int[] ids,
+                                 int count, TopKCollector collector, @Nullable IntList matched) {
+        if (parallel && ParallelScan.isWorthwhile(count)) {
+            ParallelScan.collect(scorers, ids, count, collector, matched);
+            return;
+        }
+        ParallelScan.RowScorer scorer = scorers.get();
+        for (int i = 0; i < count; i++) {
+            checkCanceled(i);
+            int id = ids != null ? ids[i] : i;
+            int score = scorer.score(id);
+            if (score >= 0) {
+                collector.offer(id, score);
+                if (matched != null) {
+                    matched.add(id);
+                }
+            }
+        }
+    }
+
+    // Extra ids are sorted
+    private static boolean isExtra(int[] extraIds, int id) {
+        return extraIds.length > 0 && Arrays.binarySearch(extraIds, id) >= 0;
+    }
+
+    /**
+     * Stops a search whose progress indicator was cancelled, checking every {@code CANCEL_CHECK_INTERVAL} items.
+     */
+    private static void checkCanceled(int position) {
+        if ((position & (CANCEL_CHECK_INTERVAL - 1)) == 0) {
+            ProgressManager.checkCanceled();
+        }
+    }
+}
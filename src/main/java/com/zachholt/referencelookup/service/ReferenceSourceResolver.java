@@ -0,0 +1,187 @@
+package com.zachholt.referencelookup.service;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Expands configured reference sources into the Java files to parse.
+ * A source is either a file, a directory (searched recursively for .java files) or a glob pattern
+ * such as {@code /work/constants/**Codes.java}.
+ */
+final class ReferenceSourceResolver {
+    private static final String GLOB_CHARS = "*?[{";
+
+    private ReferenceSourceResolver() {
+    }
+
+    /**
+     * Returns the matching files, absolute, normalized, de-duplicated and sorted so that loads are deterministic.
+     * Sources that do not exist or cannot be read are reported to the caller through {@code missing}.
+     */
+    static List<Path> resolve(Collection<String> sources, List<String> missing) {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String source : sources) {
+            if (source == null || source.trim().isEmpty()) {
+                continue;
+            }
+            String trimmed = source.trim();
+            try {
+                if (isGlob(trimmed)) {
+                    if (!addGlobMatches(trimmed, files)) {
+                        missing.add(trimmed);
+                    }
+                    continue;
+                }
+
+                Path path = Paths.get(trimmed).toAbsolutePath().normalize();
+                if (Files.isDirectory(path)) {
+                    addJavaFiles(path, files);
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path);
+                } else {
+                    missing.add(trimmed);
+                }
+            } catch (IOException | RuntimeException e) {
+                missing.add(trimmed);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    static boolean isGlob(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            if (GLOB_CHARS.indexOf(source.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether files are covered by a set of sources, whether or not they exist. Used to pick up files
+     * that appear after the sources were resolved. Glob patterns are compiled once, as the matcher is asked
+     * about every file event the IDE reports.
+     */
+    static final class SourceMatcher {
+        private final List<Path> paths = new ArrayList<>();
+        private final List<PathMatcher> globs = new ArrayList<>();
+
+        SourceMatcher(Collection<String> sources) {
+            for (String source : sources) {
+                if (source == null || source.trim().isEmpty()) {
+                    continue;
+                }
+                String trimmed = source.trim();
+                try {
+                    if (isGlob(trimmed)) {
+                        globs.add(matcherFor(trimmed));
+                    } else {
+                        paths.add(Paths.get(trimmed).toAbsolutePath().normalize());
+                    }
+                } catch (RuntimeException ignored) {
+                    // An invalid source matches nothing
+                }
+            }
+        }
+
+        boolean matches(Path file) {
+            Path absolute = file.toAbsolutePath().normalize();
+            for (Path path : paths) {
+                if (absolute.equals(path)
+                    || (absolute.startsWith(path) && absolute.getFileName().toString().endsWith(".java"))) {
+                    return true;
+                }
+            }
+            for (PathMatcher glob : globs) {
+                if (glob.matches(absolute)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the directories below which new source files can appear: directory sources and the fixed
+     * part of glob patterns.
+     */
+    static List<Path> directoryRoots(Collection<String> sources) {
+        TreeSet<Path> roots = new TreeSet<>();
+        for (String source : sources) {
+            if (source == null || source.trim().isEmpty()) {
+                continue;
+            }
+            String trimmed = source.trim();
+            try {
+                Path root = isGlob(trimmed) ? globBase(trimmed) : Paths.get(trimmed).toAbsolutePath().normalize();
+                if (Files.isDirectory(root)) {
+                    roots.add(root);
+                }
+            } catch (RuntimeException ignored) {
+                // An invalid source has no root
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+
+    private static boolean addGlobMatches(String pattern, TreeSet<Path> files) throws IOException {
+        // Walk only below the part of the pattern that has no wildcards
+        Path base = globBase(pattern);
+        if (!Files.isDirectory(base)) {
+            return false;
+        }
+        PathMatcher matcher = matcherFor(pattern);
+
+        int before = files.size();
+        try (Stream<Path> walk = Files.walk(base)) {
+            walk.filter(Files::isRegularFile)
+                .filter(matcher::matches)
+                .forEach(path -> files.add(path.normalize()));
+        }
+        return files.size() > before;
+    }
+
+    private static Path globBase(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        int baseEnd = baseEnd(normalized);
+        return Paths.get(baseEnd <= 0 ? (baseEnd == 0 ? "/" : ".") : normalized.substring(0, baseEnd))
+            .toAbsolutePath().normalize();
+    }
+
+    private static PathMatcher matcherFor(String pattern) {
+        // Relative patterns are anchored at their absolute base so they match absolute paths
+        String normalized = pattern.replace('\\', '/');
+        int baseEnd = baseEnd(normalized);
+        String base = globBase(pattern).toString().replace('\\', '/');
+        if (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        String absolutePattern = baseEnd < 0 ? base + "/" + normalized : base + normalized.substring(baseEnd);
+        return FileSystems.getDefault().getPathMatcher("glob:" + absolutePattern);
+    }
+
+    private static int baseEnd(String normalizedPattern) {
+        int firstGlob = 0;
+        while (GLOB_CHARS.indexOf(normalizedPattern.charAt(firstGlob)) < 0) {
+            firstGlob++;
+        }
+        return normalizedPattern.lastIndexOf('/', firstGlob);
+    }
+
+    private static void addJavaFiles(Path directory, TreeSet<Path> files) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.filter(Files::isRegularFile)
+                .filter(path -> path.getFileName().toString().endsWith(".java"))
+                .forEach(files::add);
+        }
+    }
+}
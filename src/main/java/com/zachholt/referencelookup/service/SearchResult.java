@@ -0,0 +1,94 @@
+package com.zachholt.referencelookup.service;
+
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.index.TopKCollector;
+import com.zachholt.referencelookup.model.MatchTier;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import com.zachholt.referencelookup.model.SearchHit;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The ranked ids of a search together with the snapshot they refer to.
+ * <p>
+ * Items are only materialized when asked for, so a broad query costs two ints per match until its results are
+ * shown. The snapshot is immutable, so a result stays valid after a reload.
+ */
+public final class SearchResult {
+    public static final SearchResult EMPTY = new SearchResult(ReferenceIndex.EMPTY, new int[0], new int[0]);
+
+    private final ReferenceIndex index;
+    // Ids from best to worst match, with their scores at the same positions
+    private final int[] ids;
+    private final int[] scores;
+
+    private SearchResult(ReferenceIndex index, int[] ids, int[] scores) {
+        this.index = index;
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    /**
+     * Drains the collector, which must not be used afterwards.
+     */
+    static SearchResult of(ReferenceIndex index, TopKCollector collector) {
+        int[] ids = collector.drainSorted();
+        int[] scores = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scores[i] = collector.scoreAt(i);
+        }
+        return new SearchResult(index, ids, scores);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public ReferenceItem getItem(int position) {
+        return index.get(ids[position]);
+    }
+
+    public SearchHit getHit(int position) {
+        return new SearchHit(getItem(position), MatchTier.fromScore(scores[position]), scores[position]);
+    }
+
+    /**
+     * Returns the items from best to worst match as a read-only view that materializes them on access.
+     */
+    public List<ReferenceItem> getItems() {
+        return new ItemsView();
+    }
+
+    /**
+     * Returns the items between from and to, materialized.
+     */
+    public List<ReferenceItem> getItems(int from, int to) {
+        return List.copyOf(getItems().subList(from, to));
+    }
+
+    List<SearchHit> toHits() {
+        SearchHit[] hits = new SearchHit[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            hits[i] = getHit(i);
+        }
+        return List.of(hits);
+    }
+
+    private final class ItemsView extends AbstractList<ReferenceItem> implements RandomAccess {
+        @Override
+        public ReferenceItem get(int index) {
+            return getItem(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
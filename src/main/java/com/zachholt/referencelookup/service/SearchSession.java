@@ -0,0 +1,50 @@
+package com.zachholt.referencelookup.service;
+
+/**
+ * Remembers the previous query of a search box together with the ids of every reference it matched.
+ * <p>
+ * Every match of a longer query is also a match of any prefix of it, so when the user keeps typing
+ * ("http_" to "http_n") {@link ReferenceDataService} only re-checks the previous matches instead of
+ * searching the whole index. Any other edit, or a reload of the references, falls back to a full search.
+ */
+public final class SearchSession {
+    private long generation = -1;
+    private String query;
+    private int[] matches;
+    // The previous query had no substring matches, only abbreviation or fuzzy ones, so no longer query has any either
+    private boolean fuzzy;
+
+    /**
+     * Returns the previous matches if they can be narrowed for the given query, otherwise null.
+     */
+    synchronized Scope scopeFor(long currentGeneration, String normalizedQuery) {
+        if (query == null || generation != currentGeneration || !normalizedQuery.startsWith(query)) {
+            return null;
+        }
+        return new Scope(matches, fuzzy);
+    }
+
+    synchronized void update(long currentGeneration, String normalizedQuery, int[] matchedIds, boolean fuzzyMatches) {
+        this.generation = currentGeneration;
+        this.query = normalizedQuery;
+        this.matches = matchedIds;
+        this.fuzzy = fuzzyMatches;
+    }
+
+    public synchronized void reset() {
+        generation = -1;
+        query = null;
+        matches = null;
+        fuzzy = false;
+    }
+
+    static final class Scope {
+        final int[] ids;
+        final boolean fuzzy;
+
+        Scope(int[] ids, boolean fuzzy) {
+            this.ids = ids;
+            this.fuzzy = fuzzy;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.zachholt.referencelookup.service;
+
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Builds the synthetic queries searched after a project opens.
+ * <p>
+ * The queries come from a few of the loaded references, so they match on every reference set and together take
+ * every path of a search: exact and trigram lookups, the full scan of short queries, descriptions, multi-word,
+ * abbreviation and typo matches. The last two also build the indexes that are created on first use.
+ */
+final class SearchWarmUp {
+    // Upper bound on the time spent, and on the rounds over the query mix within it
+    static final long BUDGET_NANOS = 2_000_000_000L;
+    static final int MAX_ROUNDS = 20;
+    // Limits used by the context menu and the Reference Browser
+    static final int[] LIMITS = {11, -1};
+
+    private static final int SAMPLES = 3;
+
+    private SearchWarmUp() {
+    }
+
+    static List<String> queriesFor(ReferenceIndex index) {
+        Set<String> queries = new LinkedHashSet<>();
+        for (int sample = 1; sample <= SAMPLES && index.size() > 0; sample++) {
+            ReferenceItem item = index.get((int) ((long) index.size() * sample / (SAMPLES + 1)));
+            String code = item.getCode();
+            if (code == null || code.isEmpty()) {
+                continue;
+            }
+            String codeLower = code.toLowerCase(Locale.ROOT);
+            queries.add(codeLower);
+            queries.add(codeLower.substring(0, Math.min(2, codeLower.length())));
+            queries.add(codeLower.substring(0, Math.min(4, codeLower.length())));
+            if (codeLower.length() >= 6) {
+                // Two swapped letters, which only a fuzzy match finds
+                char[] typo = codeLower.toCharArray();
+                char swap = typo[2];
+                typo[2] = typo[3];
+                typo[3] = swap;
+                queries.add(new String(typo));
+            }
+
+            List<String> words = words(codeLower);
+            if (words.size() >= 2) {
+                StringBuilder acronym = new StringBuilder();
+                for (String word : words) {
+                    acronym.append(word.charAt(0));
+                }
+                queries.add(acronym.toString());
+                queries.add(words.get(words.size() - 1) + " " + words.get(0));
+            }
+
+            String description = item.getDescription();
+            if (description != null) {
+                String word = middleWord(description.toLowerCase(Locale.ROOT));
+                if (word != null) {
+                    queries.add(word);
+                }
+            }
+        }
+        queries.removeIf(String::isBlank);
+        return new ArrayList<>(queries);
+    }
+
+    /**
+     * Returns the word of at least three characters closest to the middle of the text, or null if it has none.
+     * A whole word never splits a surrogate pair and is what a user would type.
+     */
+    private static String middleWord(String text) {
+        String[] words = text.trim().split("\\s+");
+        int middle = words.length / 2;
+        for (int offset = 0; offset <= middle; offset++) {
+            for (int i : new int[]{middle + offset, middle - offset - 1}) {
+                if (i >= 0 && i < words.length && words[i].length() >= 3) {
+                    return words[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> words(String codeLower) {
+        List<String> words = new ArrayList<>();
+        for (String word : codeLower.split("[\\s_-]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
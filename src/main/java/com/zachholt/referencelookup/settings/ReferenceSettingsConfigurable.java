@@ -8,11 +8,16 @@ import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ReferenceSettingsConfigurable implements Configurable {
 
     private JPanel mainPanel;
     private TextFieldWithBrowseButton javaFileField = new TextFieldWithBrowseButton();
+    private JTextArea additionalSourcesArea = new JTextArea(4, 40);
+    private JCheckBox mappedStorageCheckBox = new JCheckBox("Store references in a memory-mapped file (lower memory use for large files)");
+    private JCheckBox parallelSearchCheckBox = new JCheckBox("Search large reference sets on several cores");
 
     @Nls(capitalization = Nls.Capitalization.Title)
     @Override
@@ -32,6 +37,10 @@ public class ReferenceSettingsConfigurable implements Configurable {
 
         mainPanel = FormBuilder.createFormBuilder()
                 .addLabeledComponent(new JLabel("Java Reference File:"), javaFileField, 1, false)
+                .addLabeledComponent(new JLabel("Additional Sources (files, directories or globs, one per line):"),
+                    new JScrollPane(additionalSourcesArea), 1, true)
+                .addComponent(mappedStorageCheckBox, 1)
+                .addComponent(parallelSearchCheckBox, 1)
                 .addComponentFillVertically(new JPanel(), 0)
                 .getPanel();
 
@@ -41,17 +50,28 @@ public class ReferenceSettingsConfigurable implements Configurable {
     @Override
     public boolean isModified() {
         ReferenceSettingsState settings = ReferenceSettingsState.getInstance();
-        return !javaFileField.getText().equals(settings.referenceFilePath);
+        return !javaFileField.getText().equals(settings.referenceFilePath)
+            || !parseSources(additionalSourcesArea.getText()).equals(settings.additionalSources)
+            || mappedStorageCheckBox.isSelected() != settings.useMappedStorage
+            || parallelSearchCheckBox.isSelected() != settings.useParallelSearch;
     }
 
     @Override
     public void apply() {
         ReferenceSettingsState settings = ReferenceSettingsState.getInstance();
+        List<String> additionalSources = parseSources(additionalSourcesArea.getText());
+        boolean sourcesChanged = !javaFileField.getText().equals(settings.referenceFilePath)
+            || !additionalSources.equals(settings.additionalSources)
+            || mappedStorageCheckBox.isSelected() != settings.useMappedStorage;
         settings.referenceFilePath = javaFileField.getText();
+        settings.additionalSources = additionalSources;
+        settings.useMappedStorage = mappedStorageCheckBox.isSelected();
+        // Read on every search, so it needs no reload
+        settings.useParallelSearch = parallelSearchCheckBox.isSelected();
 
-        // Trigger reload on all open projects
-        for (com.intellij.openapi.project.Project project : com.intellij.openapi.project.ProjectManager.getInstance().getOpenProjects()) {
-            com.zachholt.referencelookup.service.ReferenceDataService.getInstance(project).reload();
+        if (sourcesChanged) {
+            // Trigger reload on all open projects; projects sharing the same sources share one parse
+            com.zachholt.referencelookup.service.ReferenceDataService.reloadAll();
         }
     }
 
@@ -59,5 +79,18 @@ public class ReferenceSettingsConfigurable implements Configurable {
     public void reset() {
         ReferenceSettingsState settings = ReferenceSettingsState.getInstance();
         javaFileField.setText(settings.referenceFilePath);
+        additionalSourcesArea.setText(String.join("\n", settings.additionalSources));
+        mappedStorageCheckBox.setSelected(settings.useMappedStorage);
+        parallelSearchCheckBox.setSelected(settings.useParallelSearch);
+    }
+
+    private static List<String> parseSources(String text) {
+        List<String> sources = new ArrayList<>();
+        for (String line : text.split("\\R")) {
+            if (!line.trim().isEmpty()) {
+                sources.add(line.trim());
+            }
+        }
+        return sources;
     }
 }
@@ -8,6 +8,9 @@ import com.intellij.util.xmlb.XmlSerializerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @State(
     name = "com.zachholt.referencelookup.settings.ReferenceSettingsState",
     storages = @Storage("ReferenceLookupPlugin.xml")
@@ -16,6 +19,15 @@ public class ReferenceSettingsState implements PersistentStateComponent<Referenc
 
     public String referenceFilePath = "";
 
+    // Further files, directories or glob patterns loaded together with the reference file
+    public List<String> additionalSources = new ArrayList<>();
+
+    // Keep references in a memory-mapped file instead of on the heap
+    public boolean useMappedStorage = false;
+
+    // Split large searches into shards scored on several cores
+    public boolean useParallelSearch = false;
+
     public static ReferenceSettingsState getInstance() {
         return ApplicationManager.getApplication().getService(ReferenceSettingsState.class);
     }
@@ -4,6 +4,10 @@ import com.intellij.icons.AllIcons;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
@@ -16,6 +20,8 @@ import com.intellij.util.ui.JBUI;
 import com.zachholt.referencelookup.ReferenceBundle;
 import com.zachholt.referencelookup.model.ReferenceItem;
 import com.zachholt.referencelookup.service.ReferenceDataService;
+import com.zachholt.referencelookup.service.SearchResult;
+import com.zachholt.referencelookup.service.SearchSession;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
@@ -25,23 +31,40 @@ import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
 
 public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel implements Disposable {
     public static final Key<ReferenceBrowserWithTreePanel> PANEL_KEY = Key.create("ReferenceBrowserPanel");
 
+    // Bounds of the typing debounce, which follows the measured search latency in between
+    private static final int MIN_DEBOUNCE_MS = 0;
+    private static final int MAX_DEBOUNCE_MS = 300;
+    // Best matches shown while the rest of a broad query is still being ranked
+    private static final int FIRST_PAGE_SIZE = 200;
+    // Sizes every row, so the list never measures rows itself
+    private static final ReferenceItem PROTOTYPE_ITEM =
+            new ReferenceItem("REFERENCE_CODE", "Value", "Description of the reference", null, null);
+
     private final Project project;
     private final ReferenceDataService dataService;
     private final SearchTextField searchField;
     private final JLabel statusLabel;
     private final JEditorPane detailsArea;
 
+    // Lets each keystroke narrow the previous matches instead of searching from scratch
+    private final SearchSession searchSession = new SearchSession();
+
     // List view components
-    private final CollectionListModel<ReferenceItem> listModel;
+    private final ReferenceListModel listModel;
     private final JBList<ReferenceItem> referenceList;
 
     // For proper cleanup
     private final Alarm searchAlarm;
+
+    // EDT only: incremented by every search, so results of superseded searches are dropped
+    private long searchGeneration;
+    private ProgressIndicator runningSearch;
+    // EDT only: moving average of recent search times, or -1 before the first search
+    private double averageSearchMillis = -1;
     private final DocumentListener documentListener;
     private final MouseAdapter listMouseListener;
 
@@ -59,10 +82,10 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
         this.detailsArea.setBackground(JBColor.PanelBackground);
 
         // List components
-        this.listModel = new CollectionListModel<>();
+        this.listModel = new ReferenceListModel();
         this.referenceList = new JBList<>(listModel);
 
-        // Initialize alarm for debounced search (300ms delay)
+        // Initialize alarm for debounced search
         this.searchAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, this);
 
         // Create listeners that we'll clean up later
@@ -89,6 +112,9 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
 
         // Update UI when loading completes
         dataService.onLoaded(() -> SwingUtilities.invokeLater(this::loadData));
+
+        // Re-run the current search when the reference files are edited
+        dataService.addChangeListener(() -> SwingUtilities.invokeLater(this::filterContent), this);
     }
 
     public void setSearchText(String text) {
@@ -175,6 +201,9 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
             }
         });
 
+        // Rows take the prototype's size instead of being measured one by one, so only visible rows are rendered.
+        // The list still stretches to the viewport, and the details panel shows text cut off at its edge.
+        referenceList.setPrototypeCellValue(PROTOTYPE_ITEM);
         referenceList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         referenceList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -226,33 +255,88 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
                 return;
             }
 
-            List<ReferenceItem> references = dataService.getAllReferences();
-            listModel.replaceAll(references);
+            // The snapshot's own immutable view, so opening the browser copies nothing
+            listModel.setItems(dataService.getAllReferences());
             updateStatus();
         });
     }
 
-    // Debounced filter - only runs search after user stops typing for 300ms
+    // Debounced filter - only runs search after user stops typing for a while
     private void scheduleFilter() {
         searchAlarm.cancelAllRequests();
-        searchAlarm.addRequest(() -> filterContent(), 300);
+        searchAlarm.addRequest(() -> filterContent(), debounceDelay());
+    }
+
+    /**
+     * Waits about twice as long as a search takes, so small reference sets are searched on every keystroke
+     * while slow searches are not started faster than they can finish.
+     */
+    private int debounceDelay() {
+        if (averageSearchMillis < 0) {
+            return MAX_DEBOUNCE_MS;
+        }
+        return (int) Math.max(MIN_DEBOUNCE_MS, Math.min(MAX_DEBOUNCE_MS, averageSearchMillis * 2));
+    }
+
+    private void recordSearchTime(long millis) {
+        averageSearchMillis = averageSearchMillis < 0 ? millis : averageSearchMillis * 0.7 + millis * 0.3;
     }
 
     private void filterContent() {
         String searchText = searchField.getText().trim();
 
+        // A newer search replaces the running one, whose result would be stale by the time it arrives
+        long generation = ++searchGeneration;
+        if (runningSearch != null) {
+            runningSearch.cancel();
+            runningSearch = null;
+        }
+
         if (searchText.isEmpty()) {
             SwingUtilities.invokeLater(this::loadData);
             return;
         }
 
+        ProgressIndicator indicator = new EmptyProgressIndicator();
+        runningSearch = indicator;
+
         // Run search in background to avoid blocking UI
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            List<ReferenceItem> filtered = dataService.search(searchText);
+            long start = System.nanoTime();
+            SearchResult result;
+            try {
+                result = ProgressManager.getInstance().runProcess(() -> {
+                    SearchResult cached = dataService.getCachedResult(searchText, -1);
+                    if (cached != null) {
+                        return cached;
+                    }
+                    // The bounded pass keeps only the best hits but records every match in the session, so the
+                    // full pass below just ranks those matches instead of scanning the references again
+                    SearchResult firstPage = dataService.searchResult(searchSession, searchText, FIRST_PAGE_SIZE);
+                    if (firstPage.size() < FIRST_PAGE_SIZE) {
+                        return firstPage;
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        if (generation == searchGeneration) {
+                            listModel.setItems(firstPage.getItems());
+                            statusLabel.setText(ReferenceBundle.message("label.ranking_matches", FIRST_PAGE_SIZE));
+                        }
+                    });
+                    return dataService.searchResult(searchSession, searchText, -1);
+                }, indicator);
+            } catch (ProcessCanceledException e) {
+                return;
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
 
-            // Update UI on EDT
+            // Update UI on EDT; the list materializes only the rows it shows
             SwingUtilities.invokeLater(() -> {
-                listModel.replaceAll(filtered);
+                recordSearchTime(millis);
+                if (generation != searchGeneration) {
+                    return;
+                }
+                runningSearch = null;
+                listModel.setItems(result.getItems());
                 updateStatus();
             });
         });
@@ -295,6 +379,10 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
                 }
                 html.append("</p>");
             }
+
+            if (item.getSource() != null) {
+                html.append("<p><b>Source:</b> ").append(escapeHtml(item.getSource())).append("</p>");
+            }
             html.append("</body></html>");
 
             detailsArea.setText(html.toString());
@@ -326,14 +414,17 @@ public class ReferenceBrowserWithTreePanel extends SimpleToolWindowPanel impleme
 
     @Override
     public void dispose() {
-        // Cancel any pending search requests
+        // Cancel any pending or running search requests
         searchAlarm.cancelAllRequests();
+        if (runningSearch != null) {
+            runningSearch.cancel();
+        }
 
         // Remove all listeners to prevent memory leaks
         searchField.getTextEditor().getDocument().removeDocumentListener(documentListener);
         referenceList.removeMouseListener(listMouseListener);
 
         // Clear data structures
-        listModel.removeAll();
+        listModel.clear();
     }
 }
@@ -0,0 +1,129 @@
+package com.zachholt.referencelookup.ui;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.JBUI;
+import com.zachholt.referencelookup.service.ReferenceDataService;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Shows how the references were loaded and how searches perform, and exports the same text for bug reports.
+ */
+public class ReferenceDiagnosticsPanel extends SimpleToolWindowPanel implements Disposable {
+    private final Project project;
+    private final ReferenceDataService dataService;
+    private final JTextArea reportArea;
+
+    private volatile boolean disposed;
+
+    public ReferenceDiagnosticsPanel(Project project) {
+        super(true, true);
+        this.project = project;
+        this.dataService = project.getService(ReferenceDataService.class);
+        this.reportArea = new JTextArea();
+        this.reportArea.setEditable(false);
+        this.reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, reportArea.getFont().getSize()));
+        this.reportArea.setBorder(JBUI.Borders.empty(5));
+
+        setupUI();
+
+        dataService.onLoaded(this::refresh);
+        dataService.addChangeListener(this::refresh, this);
+    }
+
+    private void setupUI() {
+        DefaultActionGroup toolbarGroup = new DefaultActionGroup();
+        toolbarGroup.add(new DumbAwareAction("Refresh", "Update the diagnostics", AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                refresh();
+            }
+        });
+        toolbarGroup.add(new DumbAwareAction("Reset Statistics", "Clear the search latency histograms", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                dataService.getMetrics().reset();
+                refresh();
+            }
+        });
+        toolbarGroup.add(new DumbAwareAction("Export", "Save the diagnostics to a file", AllIcons.ToolbarDecorator.Export) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                export();
+            }
+        });
+
+        ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("ReferenceDiagnosticsToolbar", toolbarGroup, true);
+        toolbar.setTargetComponent(this);
+        setToolbar(toolbar.getComponent());
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.add(new JBScrollPane(reportArea), BorderLayout.CENTER);
+        setContent(mainPanel);
+    }
+
+    /**
+     * Rebuilds the report off the EDT; estimating the heap of a large snapshot walks every item.
+     */
+    public void refresh() {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            if (disposed) return;
+            String report = dataService.getDiagnosticsReport();
+            SwingUtilities.invokeLater(() -> {
+                if (!disposed) {
+                    reportArea.setText(report);
+                    reportArea.setCaretPosition(0);
+                }
+            });
+        });
+    }
+
+    private void export() {
+        FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Diagnostics", "Save the reference lookup diagnostics", "txt");
+        VirtualFileWrapper target = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save("reference-lookup-diagnostics.txt");
+        if (target == null) {
+            return;
+        }
+        String report = reportArea.getText();
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            String message;
+            NotificationType type;
+            try {
+                Files.writeString(target.getFile().toPath(), report, StandardCharsets.UTF_8);
+                message = "Diagnostics saved to " + target.getFile();
+                type = NotificationType.INFORMATION;
+            } catch (IOException e) {
+                message = "Could not save diagnostics: " + e.getMessage();
+                type = NotificationType.ERROR;
+            }
+            NotificationGroupManager.getInstance()
+                    .getNotificationGroup("Reference Lookup")
+                    .createNotification(message, type)
+                    .notify(project);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.zachholt.referencelookup.ui;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+
+import javax.swing.*;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * List model over an immutable list of references, such as the items of a snapshot or of a search result.
+ * <p>
+ * The list is shown as is rather than copied, so replacing it costs the same for ten rows as for a million.
+ * Both lists materialize items on access; together with a fixed cell height the list only ever asks for the rows
+ * that are visible.
+ */
+final class ReferenceListModel extends AbstractListModel<ReferenceItem> {
+    private List<ReferenceItem> items = Collections.emptyList();
+
+    /**
+     * Shows the given items. They must not change afterwards.
+     */
+    void setItems(List<ReferenceItem> newItems) {
+        // Listeners read the model while handling an event, so its size must match each event as it is fired
+        int oldSize = items.size();
+        if (oldSize > 0) {
+            items = Collections.emptyList();
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        items = newItems;
+        if (!newItems.isEmpty()) {
+            fireIntervalAdded(this, 0, newItems.size() - 1);
+        }
+    }
+
+    void clear() {
+        setItems(Collections.emptyList());
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public ReferenceItem getElementAt(int index) {
+        return items.get(index);
+    }
+}
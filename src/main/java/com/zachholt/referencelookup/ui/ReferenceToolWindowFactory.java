@@ -21,5 +21,10 @@ public class ReferenceToolWindowFactory implements ToolWindowFactory {
         Disposer.register(content, browserPanel);
 
         toolWindow.getContentManager().addContent(content);
+
+        ReferenceDiagnosticsPanel diagnosticsPanel = new ReferenceDiagnosticsPanel(project);
+        Content diagnosticsContent = contentFactory.createContent(diagnosticsPanel, "Diagnostics", false);
+        Disposer.register(diagnosticsContent, diagnosticsPanel);
+        toolWindow.getContentManager().addContent(diagnosticsContent);
     }
 }
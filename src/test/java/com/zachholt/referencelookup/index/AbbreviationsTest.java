@@ -0,0 +1,72 @@
+package com.zachholt.referencelookup.index;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AbbreviationsTest {
+    @Test
+    public void visitsEveryAcronymInDepthFirstOrder() {
+        assertEquals(List.of("h", "hn", "hnf", "hf"), acronyms("hnf", Abbreviations.MAX_ACRONYM_LENGTH, acronym -> true));
+        assertEquals(List.of("d", "db", "dbc", "dbct", "dbt", "dc", "dct", "dt"),
+            acronyms("dbct", Abbreviations.MAX_ACRONYM_LENGTH, acronym -> true));
+    }
+
+    @Test
+    public void doesNotExtendRejectedAcronyms() {
+        assertEquals(List.of("h", "hn", "hf"), acronyms("hnf", Abbreviations.MAX_ACRONYM_LENGTH, acronym -> !acronym.equals("hn")));
+        assertEquals(List.of("h"), acronyms("hnf", Abbreviations.MAX_ACRONYM_LENGTH, acronym -> false));
+    }
+
+    @Test
+    public void stopsAtTheMaximumLength() {
+        assertEquals(List.of("a", "ab", "ac", "ad"), acronyms("abcd", 2, acronym -> true));
+        assertEquals(List.of("x"), acronyms("x", Abbreviations.MAX_ACRONYM_LENGTH, acronym -> true));
+    }
+
+    @Test
+    public void coversTheAcronymOfEveryMatchingCode() {
+        for (String code : new String[]{"HTTP_NOT_FOUND", "httpNotFound", "HTTP-NO-FOUND", "HtNoFo"}) {
+            String acronym = Abbreviations.acronym(code);
+            assertTrue(code, Abbreviations.matches("htnofo", code));
+            assertTrue(code, acronyms("htnofo", Abbreviations.MAX_ACRONYM_LENGTH, candidate -> true).contains(acronym));
+        }
+    }
+
+    @Test
+    public void splitsCodesIntoWords() {
+        assertEquals("hnf", Abbreviations.acronym("HTTP_NOT_FOUND"));
+        assertEquals("ct", Abbreviations.acronym("connectionTimeout"));
+        assertEquals("hs", Abbreviations.acronym("HTTPServer"));
+        assertEquals("dct", Abbreviations.acronym("db-connection timeout"));
+        assertNull(Abbreviations.acronym("TIMEOUT"));
+        assertNull(Abbreviations.acronym("A_B_C_D_E_F_G_H_I"));
+    }
+
+    @Test
+    public void matchesPrefixesOfEveryWordInOrder() {
+        assertTrue(Abbreviations.matches("hnf", "HTTP_NOT_FOUND"));
+        assertTrue(Abbreviations.matches("httpnotf", "HTTP_NOT_FOUND"));
+        assertFalse(Abbreviations.matches("hn", "HTTP_NOT_FOUND"));
+        assertFalse(Abbreviations.matches("nhf", "HTTP_NOT_FOUND"));
+        assertFalse(Abbreviations.supports("h"));
+        assertFalse(Abbreviations.supports("h_n"));
+        assertTrue(Abbreviations.supports("hnf"));
+    }
+
+    private static List<String> acronyms(String query, int maxLength, Predicate<String> visitor) {
+        List<String> visited = new ArrayList<>();
+        Abbreviations.forEachAcronym(query, maxLength, acronym -> {
+            visited.add(acronym);
+            return visitor.test(acronym);
+        });
+        return visited;
+    }
+}
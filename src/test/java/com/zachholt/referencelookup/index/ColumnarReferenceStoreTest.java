@@ -0,0 +1,132 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.MatchTier;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ColumnarReferenceStoreTest {
+    private static final List<ReferenceItem> ITEMS = List.of(
+        item("HTTP_NOT_FOUND", "404", "Resource not found", "HTTP", Arrays.asList("http", "error"), "/a/Http.java"),
+        item("CONNECTION_TIMEOUT", null, null, null, null, null),
+        item("EMOJI_😀_CODE", "😀", "Smile", null, null, "/a/Emoji.java"),
+        item("GRÜSSE_ÄÖÜ", "Größe", "Ümlaut café – 日本", "Ω", List.of("http", "ä"), "/a/Http.java"),
+        item("EMPTY", "", "", "", Collections.emptyList(), null),
+        item(null, "orphan", "No code", null, List.of("a", "b", "c"), null));
+
+    @Test
+    public void readsBackEveryField() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(ITEMS);
+
+        assertEquals(ITEMS.size(), store.size());
+        for (int id = 0; id < ITEMS.size(); id++) {
+            ReferenceItem expected = ITEMS.get(id);
+            ReferenceItem actual = store.get(id);
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getTags(), actual.getTags());
+            assertEquals(expected.getSource(), actual.getSource());
+        }
+    }
+
+    @Test
+    public void keepsTheLowercaseFieldsOfARow() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(ITEMS);
+
+        for (int id = 0; id < ITEMS.size(); id++) {
+            ReferenceItem expected = ITEMS.get(id);
+            ReferenceItem actual = store.get(id);
+            assertEquals(expected.getCodeLower(), actual.getCodeLower());
+            assertEquals(expected.getValueLower(), actual.getValueLower());
+            assertEquals(expected.getDescriptionLower(), actual.getDescriptionLower());
+            if (actual.getCodeLower() != null) {
+                assertSame(actual.getCodeLower(), actual.getCodeLower());
+            }
+            if (actual.getValueLower() != null) {
+                assertSame(actual.getValueLower(), actual.getValueLower());
+            }
+        }
+        assertNull(store.get(5).getCodeLower());
+        assertNull(store.get(1).getValueLower());
+    }
+
+    @Test
+    public void returnsTagsInTheOrderTheyWereFirstSeen() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(List.of(
+            item("A", null, null, null, List.of("x", "y"), null),
+            item("B", null, null, null, List.of("y", "x"), null)));
+
+        assertEquals(List.of("x", "y"), store.get(1).getTags());
+    }
+
+    @Test
+    public void readsTagsBeyondOneBitsetWord() {
+        List<ReferenceItem> items = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            items.add(item("CODE_" + i, null, null, null, List.of("tag" + i, "tag" + (i + 1)), null));
+        }
+
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(items);
+
+        assertEquals(List.of("tag63", "tag64"), store.get(63).getTags());
+        assertEquals(List.of("tag69", "tag70"), store.get(69).getTags());
+    }
+
+    @Test
+    public void countsTheCodeLengthInCharacters() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(ITEMS);
+
+        assertEquals("HTTP_NOT_FOUND".length(), store.codeLength(0));
+        assertEquals("EMOJI_😀_CODE".length(), store.codeLength(2));
+        assertEquals("GRÜSSE_ÄÖÜ".length(), store.codeLength(3));
+        assertEquals(0, store.codeLength(5));
+    }
+
+    @Test
+    public void scoresNonAsciiRowsLikeAsciiRows() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(ITEMS);
+        int codeLength = "GRÜSSE_ÄÖÜ".length();
+
+        assertEquals(MatchTier.EXACT.score(ReferenceScorer.FIELD_CODE, codeLength),
+            store.score(3, new SearchQuery("grüsse_äöü")));
+        assertEquals(MatchTier.PREFIX.score(ReferenceScorer.FIELD_CODE, codeLength),
+            store.score(3, new SearchQuery("grü")));
+        assertEquals(MatchTier.TOKEN_PREFIX.score(ReferenceScorer.FIELD_CODE, codeLength),
+            store.score(3, new SearchQuery("äöü")));
+        assertEquals(MatchTier.EXACT.score(ReferenceScorer.FIELD_VALUE, codeLength),
+            store.score(3, new SearchQuery("größe")));
+        assertEquals(MatchTier.DESCRIPTION.score(ReferenceScorer.FIELD_DESCRIPTION, codeLength),
+            store.score(3, new SearchQuery("日本")));
+        assertEquals(ReferenceScorer.fuzzyScore(0, codeLength),
+            store.fuzzyScore(3, new FuzzyMatcher("grüsse")));
+    }
+
+    @Test
+    public void foldsAsciiLettersWhileMatching() {
+        ColumnarReferenceStore store = ColumnarReferenceStore.of(ITEMS);
+
+        assertEquals(MatchTier.TOKEN_PREFIX.score(ReferenceScorer.FIELD_CODE, "HTTP_NOT_FOUND".length()),
+            store.score(0, new SearchQuery("not")));
+        assertEquals(MatchTier.DESCRIPTION.score(ReferenceScorer.FIELD_DESCRIPTION, "HTTP_NOT_FOUND".length()),
+            store.score(0, new SearchQuery("resource")));
+        assertEquals(-1, store.score(1, new SearchQuery("404")));
+        assertEquals(-1, store.score(5, new SearchQuery("zzz")));
+        assertEquals(-1, store.fuzzyScore(5, new FuzzyMatcher("orphan")));
+    }
+
+    private static ReferenceItem item(String code, String value, String description, String category, List<String> tags, String source) {
+        ReferenceItem item = new ReferenceItem(code, value, description, category, tags);
+        item.setSource(source);
+        return item;
+    }
+}
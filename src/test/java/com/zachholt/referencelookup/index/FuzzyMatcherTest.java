@@ -0,0 +1,102 @@
+package com.zachholt.referencelookup.index;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyMatcherTest {
+    @Test
+    public void allowsMoreEditsForLongerQueries() {
+        assertEquals(0, FuzzyMatcher.maxDistanceFor(2));
+        assertEquals(1, FuzzyMatcher.maxDistanceFor(3));
+        assertEquals(1, FuzzyMatcher.maxDistanceFor(5));
+        assertEquals(2, FuzzyMatcher.maxDistanceFor(6));
+        assertEquals(FuzzyMatcher.MAX_DISTANCE, FuzzyMatcher.maxDistanceFor(40));
+        assertFalse(new FuzzyMatcher("ab").isEnabled());
+        assertTrue(new FuzzyMatcher("abc").isEnabled());
+    }
+
+    @Test
+    public void countsEachKindOfEdit() {
+        FuzzyMatcher matcher = new FuzzyMatcher("timeout");
+        assertEquals(0, distance(matcher, "timeout"));
+        assertEquals(1, distance(matcher, "timout"));
+        assertEquals(1, distance(matcher, "timexout"));
+        assertEquals(1, distance(matcher, "timeaut"));
+        assertEquals(1, distance(matcher, "timeuot"));
+        assertEquals(2, distance(matcher, "tmieuot"));
+        assertEquals(-1, distance(matcher, "tmeuo"));
+    }
+
+    @Test
+    public void matchesPrefixesOfTerms() {
+        FuzzyMatcher matcher = new FuzzyMatcher("conection");
+        assertEquals(1, distance(matcher, "connection_timeout"));
+        assertEquals(-1, distance(matcher, "timeout_connection"));
+    }
+
+    @Test
+    public void matchesTokensOfCodes() {
+        FuzzyMatcher matcher = new FuzzyMatcher("timeuot");
+        assertEquals(1, matcher.codeDistance("connection_timeout"));
+        assertEquals(1, matcher.codeDistance("read-timeout-ms"));
+        assertEquals(-1, matcher.codeDistance("connectiontimeout"));
+    }
+
+    @Test
+    public void rejectsEveryEditForShortQueries() {
+        FuzzyMatcher matcher = new FuzzyMatcher("ab");
+        assertEquals(0, distance(matcher, "abc"));
+        assertEquals(-1, distance(matcher, "ba"));
+    }
+
+    @Test
+    public void searchFindsTheSameTermsAsTheDistanceOfEachTerm() {
+        Random random = new Random(42);
+        TreeSet<String> sorted = new TreeSet<>();
+        while (sorted.size() < 2000) {
+            StringBuilder term = new StringBuilder();
+            int length = 1 + random.nextInt(9);
+            for (int i = 0; i < length; i++) {
+                term.append("abcde_".charAt(random.nextInt(6)));
+            }
+            sorted.add(term.toString());
+        }
+        String[] terms = sorted.toArray(new String[0]);
+        byte[] prefixLengths = FuzzyMatcher.commonPrefixLengths(terms);
+
+        for (String query : new String[]{"abc", "abcde", "bad_cab", "eeeeee", "a_b_c_d"}) {
+            List<String> expected = new ArrayList<>();
+            FuzzyMatcher single = new FuzzyMatcher(query);
+            for (String term : terms) {
+                int distance = distance(single, term);
+                if (distance >= 0) {
+                    expected.add(term + "=" + distance);
+                }
+            }
+
+            List<String> actual = new ArrayList<>();
+            new FuzzyMatcher(query).search(terms, prefixLengths, (term, distance) -> actual.add(terms[term] + "=" + distance));
+            assertEquals(query, expected, actual);
+        }
+    }
+
+    @Test
+    public void commonPrefixLengthsCompareWithThePreviousTerm() {
+        String[] terms = {"abc", "abd", "abdx", "b"};
+        byte[] lengths = FuzzyMatcher.commonPrefixLengths(terms);
+        assertEquals("[0, 2, 3, 0]", Arrays.toString(lengths));
+    }
+
+    private static int distance(FuzzyMatcher matcher, String term) {
+        return matcher.distance(term, 0, term.length());
+    }
+}
@@ -0,0 +1,68 @@
+package com.zachholt.referencelookup.index;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IntSetsTest {
+    @Test
+    public void intersectsListsOfSimilarSize() {
+        assertArrayEquals(new int[]{3, 7}, IntSets.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 4, 7, 9}));
+        assertArrayEquals(new int[]{1, 2, 3}, IntSets.intersect(new int[]{1, 2, 3}, new int[]{1, 2, 3}));
+        assertArrayEquals(new int[0], IntSets.intersect(new int[]{1, 3}, new int[]{2, 4}));
+    }
+
+    @Test
+    public void gallopsThroughAMuchLongerList() {
+        int[] longList = range(0, 1000, 2);
+        assertArrayEquals(new int[]{0, 500, 998}, IntSets.intersect(new int[]{0, 1, 500, 501, 998, 999}, longList));
+        assertArrayEquals(new int[]{0, 500, 998}, IntSets.intersect(longList, new int[]{0, 1, 500, 501, 998, 999}));
+        assertArrayEquals(new int[0], IntSets.intersect(new int[]{1001, 2000}, longList));
+    }
+
+    @Test
+    public void intersectsWithEmptyLists() {
+        assertEquals(0, IntSets.intersect(new int[0], new int[]{1, 2}).length);
+        assertEquals(0, IntSets.intersect(new int[]{1, 2}, new int[0]).length);
+    }
+
+    @Test
+    public void agreesWithANaiveIntersection() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSet(random, random.nextInt(50), 2000);
+            int[] b = randomSet(random, random.nextInt(2000), 2000);
+            assertArrayEquals(naiveIntersect(a, b), IntSets.intersect(a, b));
+            assertArrayEquals(naiveIntersect(a, b), IntSets.intersect(b, a));
+        }
+    }
+
+    @Test
+    public void unitesSparseAndDenseLists() {
+        int[] lists = {1, 5, 9, 2, 5, 8, 9};
+        assertArrayEquals(new int[]{1, 2, 5, 8, 9}, IntSets.union(lists, 0, lists.length, 1_000_000));
+        assertArrayEquals(new int[]{1, 2, 5, 8, 9}, IntSets.union(lists, 0, lists.length, 10));
+        assertArrayEquals(new int[]{2, 5, 8, 9}, IntSets.union(lists, 3, lists.length, 10));
+        assertEquals(0, IntSets.union(lists, 2, 2, 10).length);
+    }
+
+    private static int[] range(int from, int to, int step) {
+        int[] values = new int[(to - from + step - 1) / step];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    private static int[] randomSet(Random random, int size, int universe) {
+        return random.ints(size, 0, universe).distinct().sorted().toArray();
+    }
+
+    private static int[] naiveIntersect(int[] a, int[] b) {
+        return Arrays.stream(a).filter(id -> Arrays.binarySearch(b, id) >= 0).toArray();
+    }
+}
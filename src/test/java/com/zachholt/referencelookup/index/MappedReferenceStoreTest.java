@@ -0,0 +1,110 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedReferenceStoreTest {
+    private static final List<ReferenceItem> ITEMS = List.of(
+        new ReferenceItem("HTTP_NOT_FOUND", "404", "Resource not found", "HTTP", Arrays.asList("http", "error")),
+        new ReferenceItem("CONNECTION_TIMEOUT", null, null, null, null),
+        new ReferenceItem("EMOJI_\uD83D\uDE00_CODE", "\uD83D\uDE00", "Smile", null, null),
+        new ReferenceItem("GRÜSSE_ÄÖÜ", "Größe", "Ümlaut café – 日本", "Ω", List.of("ä")),
+        new ReferenceItem("EMPTY", "", "", "", Collections.emptyList()),
+        new ReferenceItem(null, "orphan", "No code", null, List.of("a", "b", "c")));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackEveryField() throws IOException {
+        MappedReferenceStore store = writeAndMap(ITEMS);
+
+        assertEquals(ITEMS.size(), store.size());
+        for (int id = 0; id < ITEMS.size(); id++) {
+            ReferenceItem expected = ITEMS.get(id);
+            ReferenceItem actual = store.get(id);
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getTags(), actual.getTags());
+        }
+    }
+
+    @Test
+    public void scoresLikeTheHeapIndex() throws IOException {
+        MappedReferenceStore store = writeAndMap(ITEMS);
+        ReferenceIndex heap = ReferenceIndex.build(ITEMS, 1);
+
+        for (String query : new String[]{"http_not_found", "404", "http", "not", "found", "timeout", "größe", "café", "日本", "orphan", "emoji", "zzz"}) {
+            SearchQuery searchQuery = new SearchQuery(query);
+            for (int id = 0; id < ITEMS.size(); id++) {
+                assertEquals(query + " in row " + id, heap.score(id, searchQuery), store.score(id, searchQuery));
+            }
+        }
+    }
+
+    @Test
+    public void findsEveryMatchAmongTheTrigramCandidates() throws IOException {
+        MappedReferenceStore store = writeAndMap(ITEMS);
+
+        for (String query : new String[]{"not", "timeout", "größe", "café", "orphan"}) {
+            List<Integer> candidates = Arrays.stream(store.getTrigramIndex().candidates(query)).boxed().toList();
+            SearchQuery searchQuery = new SearchQuery(query);
+            for (int id = 0; id < ITEMS.size(); id++) {
+                if (store.score(id, searchQuery) >= 0) {
+                    assertTrue(query + " in row " + id, candidates.contains(id));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mapsAStoreWrittenAfterOtherData() throws IOException {
+        Path file = folder.newFile("offset.bin").toPath();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeLong(42);
+            MappedReferenceStore.write(ITEMS, out);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedReferenceStore store = MappedReferenceStore.map(channel, Long.BYTES, channel.size() - Long.BYTES);
+            assertEquals("HTTP_NOT_FOUND", store.get(0).getCode());
+            assertEquals("Größe", store.get(3).getValue());
+        }
+    }
+
+    @Test
+    public void mapsAnEmptyStore() throws IOException {
+        MappedReferenceStore store = writeAndMap(Collections.emptyList());
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.getTrigramIndex().candidates("abc").length);
+    }
+
+    private MappedReferenceStore writeAndMap(List<ReferenceItem> items) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            MappedReferenceStore.write(items, out);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return MappedReferenceStore.map(channel, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ReferenceIndexTest {
+    @Test
+    public void addsSourcesInPathOrder() {
+        ReferenceIndex index = ReferenceIndex.build(concat(items("/a/A.java", "A1", "A2"), items("/a/C.java", "C1")), 1);
+
+        ReferenceIndex updated = index.withSource("/a/B.java", items("/a/B.java", "B1"), 2);
+
+        assertEquals(List.of("/a/A.java", "/a/B.java", "/a/C.java"), updated.getSources());
+        assertEquals(List.of("A1", "A2", "B1", "C1"), codes(updated));
+        assertEquals(2, updated.getGeneration());
+        assertEquals(List.of("A1", "A2", "C1"), codes(index));
+
+        assertEquals(List.of("/a/A.java", "/a/C.java", "/a/D.java"),
+            index.withSource("/a/D.java", items("/a/D.java", "D1"), 3).getSources());
+        assertEquals(List.of("/a/0.java", "/a/A.java", "/a/C.java"),
+            index.withSource("/a/0.java", items("/a/0.java", "01"), 3).getSources());
+    }
+
+    @Test
+    public void replacesTheItemsOfASource() {
+        ReferenceIndex index = ReferenceIndex.build(concat(items("/a/A.java", "A1"), items("/a/B.java", "B1", "B2")), 1);
+
+        ReferenceIndex updated = index.withSource("/a/A.java", items("/a/A.java", "A3", "A4", "A5"), 2);
+
+        assertEquals(List.of("/a/A.java", "/a/B.java"), updated.getSources());
+        assertEquals(List.of("A3", "A4", "A5", "B1", "B2"), codes(updated));
+        assertArrayEquals(new int[]{3}, updated.getExactMatches("b1"));
+        assertArrayEquals(new int[0], updated.getExactMatches("a1"));
+    }
+
+    @Test
+    public void removesASourceWithoutItems() {
+        ReferenceIndex index = ReferenceIndex.build(concat(items("/a/A.java", "A1"), items("/a/B.java", "B1")), 1);
+
+        ReferenceIndex updated = index.withSource("/a/A.java", Collections.emptyList(), 2);
+
+        assertEquals(List.of("/a/B.java"), updated.getSources());
+        assertEquals(List.of("B1"), codes(updated));
+        assertArrayEquals(new int[]{0}, updated.getExactMatches("b1"));
+
+        ReferenceIndex empty = updated.withSource("/a/B.java", Collections.emptyList(), 3);
+        assertEquals(0, empty.size());
+        assertEquals(List.of(), empty.getSources());
+        assertEquals(List.of("/a/C.java"), empty.withSource("/a/C.java", items("/a/C.java", "C1"), 4).getSources());
+    }
+
+    @Test
+    public void ignoresRemovalOfAnUnknownSource() {
+        ReferenceIndex index = ReferenceIndex.build(items("/a/A.java", "A1"), 1);
+
+        ReferenceIndex updated = index.withSource("/a/B.java", Collections.emptyList(), 2);
+
+        assertEquals(List.of("/a/A.java"), updated.getSources());
+        assertEquals(List.of("A1"), codes(updated));
+    }
+
+    @Test
+    public void addsTheFirstSourceToTheEmptyIndex() {
+        ReferenceIndex updated = ReferenceIndex.EMPTY.withSource("/a/A.java", items("/a/A.java", "A1"), 1);
+
+        assertEquals(List.of("/a/A.java"), updated.getSources());
+        assertEquals(List.of("A1"), codes(updated));
+    }
+
+    private static List<ReferenceItem> items(String source, String... codes) {
+        List<ReferenceItem> items = new ArrayList<>(codes.length);
+        for (String code : codes) {
+            ReferenceItem item = new ReferenceItem(code, code.toLowerCase(), "Description of " + code, null, null);
+            item.setSource(source);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static List<ReferenceItem> concat(List<ReferenceItem> first, List<ReferenceItem> second) {
+        List<ReferenceItem> items = new ArrayList<>(first);
+        items.addAll(second);
+        return items;
+    }
+
+    private static List<String> codes(ReferenceIndex index) {
+        List<String> codes = new ArrayList<>(index.size());
+        for (ReferenceItem item : index.getItems()) {
+            codes.add(item.getCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,88 @@
+package com.zachholt.referencelookup.index;
+
+import com.zachholt.referencelookup.model.MatchTier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopKCollectorTest {
+    @Test
+    public void keepsTheBestHitsOfABoundedSearch() {
+        TopKCollector collector = new TopKCollector(3);
+        int[] scores = {10, 50, 20, 40, 30};
+        for (int id = 0; id < scores.length; id++) {
+            collector.offer(id, scores[id]);
+        }
+
+        assertEquals(3, collector.size());
+        assertArrayEquals(new int[]{1, 3, 4}, collector.drainSorted());
+        assertEquals(50, collector.scoreAt(0));
+        assertEquals(40, collector.scoreAt(1));
+        assertEquals(30, collector.scoreAt(2));
+    }
+
+    @Test
+    public void breaksTiesInFavourOfTheLowerId() {
+        TopKCollector bounded = new TopKCollector(2);
+        TopKCollector unbounded = new TopKCollector(-1);
+        for (int id : new int[]{4, 2, 7, 1, 9}) {
+            bounded.offer(id, 100);
+            unbounded.offer(id, 100);
+        }
+
+        assertArrayEquals(new int[]{1, 2}, bounded.drainSorted());
+        assertArrayEquals(new int[]{1, 2, 4, 7, 9}, unbounded.drainSorted());
+    }
+
+    @Test
+    public void sortsEveryHitOfAnUnboundedSearch() {
+        Random random = new Random(3);
+        TopKCollector unbounded = new TopKCollector(-1);
+        TopKCollector bounded = new TopKCollector(25);
+        List<int[]> hits = new ArrayList<>();
+        for (int id = 0; id < 1000; id++) {
+            int score = random.nextInt(100);
+            unbounded.offer(id, score);
+            bounded.offer(id, score);
+            hits.add(new int[]{id, score});
+        }
+        hits.sort(Comparator.<int[]>comparingInt(hit -> -hit[1]).thenComparingInt(hit -> hit[0]));
+        int[] expected = hits.stream().mapToInt(hit -> hit[0]).toArray();
+
+        assertFalse(unbounded.isBounded());
+        assertTrue(bounded.isBounded());
+        assertArrayEquals(expected, unbounded.drainSorted());
+        int[] best = new int[25];
+        System.arraycopy(expected, 0, best, 0, best.length);
+        assertArrayEquals(best, bounded.drainSorted());
+    }
+
+    @Test
+    public void ranksEveryTierAboveTheNextWhateverTheFieldAndLength() {
+        // Search weighs the code field highest, at 200
+        MatchTier[] tiers = MatchTier.values();
+        for (int i = 1; i < tiers.length; i++) {
+            int weakestOfStronger = tiers[i - 1].score(0, 1000);
+            int strongestOfWeaker = tiers[i].score(200, 0);
+            assertTrue(tiers[i - 1] + " above " + tiers[i], weakestOfStronger > strongestOfWeaker);
+        }
+        for (MatchTier tier : tiers) {
+            assertEquals(tier, MatchTier.fromScore(tier.score(0, 1000)));
+            assertEquals(tier, MatchTier.fromScore(tier.score(200, 0)));
+        }
+    }
+
+    @Test
+    public void prefersShorterCodesWithinATier() {
+        assertTrue(MatchTier.PREFIX.score(200, 7) > MatchTier.PREFIX.score(200, 16));
+        assertTrue(MatchTier.PREFIX.score(200, 16) > MatchTier.PREFIX.score(100, 7));
+    }
+}
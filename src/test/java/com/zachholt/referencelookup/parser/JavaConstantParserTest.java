@@ -0,0 +1,122 @@
+package com.zachholt.referencelookup.parser;
+
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JavaConstantParserTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsInitializerSpanningLines() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    /** Request timeout in milliseconds */",
+            "    public static final int TIMEOUT =",
+            "        30",
+            "        * 1000;",
+            "}");
+
+        assertEquals(1, items.size());
+        assertItem(items.get(0), "TIMEOUT", "30 * 1000", "Request timeout in milliseconds");
+    }
+
+    @Test
+    public void readsEveryDeclaratorOfOneDeclaration() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    // Shared limits",
+            "    public static final int A = 1, B = 2;",
+            "    public static final int C = 3;",
+            "}");
+
+        assertEquals(3, items.size());
+        assertItem(items.get(0), "A", "1", "Shared limits");
+        assertItem(items.get(1), "B", "2", "Shared limits");
+        assertItem(items.get(2), "C", "3", "3");
+    }
+
+    @Test
+    public void keepsCommasInsideCallsAndTypeArguments() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    public static final java.util.Map<String, Integer> PORTS = java.util.Map.of(\"http\", 80);",
+            "    public static final int MAX = Math.max(1, 2), MIN = 0;",
+            "}");
+
+        assertEquals(3, items.size());
+        assertItem(items.get(0), "PORTS", "java.util.Map.of(\"http\", 80)", "java.util.Map.of(\"http\", 80)");
+        assertItem(items.get(1), "MAX", "Math.max(1, 2)", "Math.max(1, 2)");
+        assertItem(items.get(2), "MIN", "0", "0");
+    }
+
+    @Test
+    public void ignoresSeparatorsInsideLiterals() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    public static final String URL = \"http://example.com/a;b\"; // Service endpoint",
+            "    public static final String QUOTE = \"say \\\"hi\\\"; // not a comment\";",
+            "    public static final char SEMICOLON = ';';",
+            "    public static final String NEXT = \"next\";",
+            "}");
+
+        assertEquals(4, items.size());
+        assertItem(items.get(0), "URL", "http://example.com/a;b", "Service endpoint");
+        assertItem(items.get(1), "QUOTE", "say \\\"hi\\\"; // not a comment", "say \\\"hi\\\"; // not a comment");
+        assertItem(items.get(2), "SEMICOLON", "';'", "';'");
+        assertItem(items.get(3), "NEXT", "next", "next");
+    }
+
+    @Test
+    public void readsTextBlocks() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    public static final String QUERY = \"\"\"",
+            "        select *; -- \"quoted\"",
+            "        from codes // all",
+            "        \"\"\";",
+            "}");
+
+        assertEquals(1, items.size());
+        assertEquals("QUERY", items.get(0).getCode());
+        assertEquals("select *; -- \"quoted\"\nfrom codes // all", items.get(0).getValue());
+    }
+
+    @Test
+    public void skipsFieldsThatAreNotConstants() throws IOException {
+        List<ReferenceItem> items = parse(
+            "public class Codes {",
+            "    public static int COUNTER = 1;",
+            "    private static final int HIDDEN = 2;",
+            "    public static final int UNSET;",
+            "    public static final int method() { return 3; }",
+            "    @Deprecated(since = \"1.0\")",
+            "    public static final int OLD = 4;",
+            "}");
+
+        assertEquals(1, items.size());
+        assertItem(items.get(0), "OLD", "4", "4");
+    }
+
+    private List<ReferenceItem> parse(String... lines) throws IOException {
+        Path file = folder.newFile("Codes.java").toPath();
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return new JavaConstantParser().parseJavaFile(file);
+    }
+
+    private static void assertItem(ReferenceItem item, String code, String value, String description) {
+        assertEquals(code, item.getCode());
+        assertEquals(value, item.getValue());
+        assertEquals(description, item.getDescription());
+    }
+}
@@ -0,0 +1,87 @@
+package com.zachholt.referencelookup.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+    @Test
+    public void reportsSmallValuesExactly() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 50; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(50, histogram.getCount());
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(25, histogram.getPercentile(0.5));
+        assertEquals(45, histogram.getPercentile(0.9));
+        assertEquals(50, histogram.getPercentile(1));
+        assertEquals(25.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void keepsPercentilesWithinTheBucketError() {
+        Random random = new Random(42);
+        Histogram histogram = new Histogram();
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread over many powers of two
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        long previous = 0;
+        for (double fraction : new double[]{0.01, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999, 1}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long reported = histogram.getPercentile(fraction);
+            assertTrue(fraction + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(fraction + ": " + reported + " > " + exact, reported <= exact + exact / 32);
+            assertTrue(reported >= previous);
+            previous = reported;
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getPercentile(1));
+    }
+
+    @Test
+    public void neverReportsMoreThanTheMaximum() {
+        Histogram histogram = new Histogram();
+        histogram.record(1000);
+
+        assertEquals(1000, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    public void handlesTheExtremes() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean(), 0);
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void forgetsEverythingOnReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(123);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.5));
+
+        histogram.record(7);
+        assertEquals(7, histogram.getPercentile(0.5));
+    }
+}
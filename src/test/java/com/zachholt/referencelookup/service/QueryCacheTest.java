@@ -0,0 +1,96 @@
+package com.zachholt.referencelookup.service;
+
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.index.TopKCollector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class QueryCacheTest {
+    @Test
+    public void keysResultsByQueryAndLimit() {
+        QueryCache cache = new QueryCache();
+        SearchResult limited = result(10);
+        SearchResult all = result(30);
+
+        cache.put(1, "http", 10, limited);
+        cache.put(1, "http", -1, all);
+
+        assertSame(limited, cache.get(1, "http", 10));
+        assertSame(all, cache.get(1, "http", -1));
+        assertSame(all, cache.get(1, "http", 0));
+        assertNull(cache.get(1, "http", 20));
+        assertNull(cache.get(1, "https", 10));
+    }
+
+    @Test
+    public void dropsResultsOfAnOlderGeneration() {
+        QueryCache cache = new QueryCache();
+        cache.put(1, "http", 10, result(10));
+
+        assertNull(cache.get(2, "http", 10));
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1, "http", 10));
+
+        cache.put(1, "http", 10, result(10));
+        assertEquals(0, cache.size());
+        cache.put(2, "http", 10, result(10));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedResult() {
+        QueryCache cache = new QueryCache();
+        for (int i = 0; i < QueryCache.MAX_ENTRIES; i++) {
+            cache.put(1, "q" + i, 10, result(1));
+        }
+
+        cache.get(1, "q0", 10);
+        cache.put(1, "new", 10, result(1));
+
+        assertEquals(QueryCache.MAX_ENTRIES, cache.size());
+        assertNull(cache.peek(1, "q1", 10));
+        assertEquals(1, cache.peek(1, "q0", 10).size());
+        assertEquals(1, cache.peek(1, "new", 10).size());
+    }
+
+    @Test
+    public void boundsTheNumberOfCachedIds() {
+        QueryCache cache = new QueryCache();
+        int quarter = QueryCache.MAX_IDS / 4;
+        for (int i = 0; i < 5; i++) {
+            cache.put(1, "q" + i, -1, result(quarter));
+        }
+
+        assertEquals(4, cache.size());
+        assertNull(cache.peek(1, "q0", -1));
+
+        cache.put(1, "huge", -1, result(quarter + 1));
+        assertNull(cache.peek(1, "huge", -1));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void countsOnlyCountedLookups() {
+        QueryCache cache = new QueryCache();
+        cache.put(1, "http", 10, result(1));
+
+        cache.get(1, "http", 10);
+        cache.get(1, "ftp", 10);
+        cache.get(1, "ftp", 10);
+        cache.peek(1, "http", 10);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    private static SearchResult result(int size) {
+        TopKCollector collector = new TopKCollector(-1);
+        for (int id = 0; id < size; id++) {
+            collector.offer(id, id);
+        }
+        return SearchResult.of(ReferenceIndex.EMPTY, collector);
+    }
+}
@@ -0,0 +1,181 @@
+package com.zachholt.referencelookup.service;
+
+import com.zachholt.referencelookup.index.ReferenceIndex;
+import com.zachholt.referencelookup.model.ReferenceItem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceIndexCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresAWrittenIndex() throws IOException {
+        ReferenceIndexCache cache = new ReferenceIndexCache(folder.newFolder("cache").toPath());
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(sourceFile("A = 1")), "regex");
+        ReferenceIndex index = ReferenceIndex.build(List.of(
+            new ReferenceItem("HTTP_OK", "200", "Success", "HTTP", Arrays.asList("http", "ok")),
+            new ReferenceItem("TIMEOUT", null, null, null, null)), 1);
+
+        cache.write(key, index);
+        ReferenceIndex restored = cache.read(key, 7);
+
+        assertNotNull(restored);
+        assertEquals(7, restored.getGeneration());
+        assertEquals(describe(index), describe(restored));
+        assertArrayEquals(new int[]{0}, restored.getExactMatches("http_ok"));
+        assertArrayEquals(new int[]{0}, restored.candidates("succ"));
+    }
+
+    @Test
+    public void missesWhenTheFileChanges() throws IOException {
+        ReferenceIndexCache cache = new ReferenceIndexCache(folder.newFolder("cache").toPath());
+        Path file = sourceFile("A = 1");
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(file), "regex");
+        cache.write(key, ReferenceIndex.build(List.of(new ReferenceItem("A", "1", null, null, null)), 1));
+
+        Files.write(file, "B = 2".getBytes(StandardCharsets.UTF_8));
+        ReferenceIndexCache.Key changed = ReferenceIndexCache.Key.of(List.of(file), "regex");
+
+        assertNotEquals(key, changed);
+        assertNull(cache.read(changed, 2));
+        assertNull(cache.read(ReferenceIndexCache.Key.of(List.of(file), "psi"), 2));
+    }
+
+    @Test
+    public void mapsAWrittenStore() throws IOException {
+        ReferenceIndexCache cache = new ReferenceIndexCache(folder.newFolder("cache").toPath());
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(sourceFile("A = 1")), "regex");
+        List<ReferenceItem> items = List.of(
+            new ReferenceItem("HTTP_OK", "200", "Success", "HTTP", Arrays.asList("http", "ok")),
+            new ReferenceItem("TIMEOUT", null, null, null, null));
+
+        assertTrue(cache.writeMapped(key, producing(items)));
+        ReferenceIndex restored = cache.readMapped(key, 7);
+
+        assertNotNull(restored);
+        assertTrue(restored.isMapped());
+        assertEquals(7, restored.getGeneration());
+        assertEquals(describe(ReferenceIndex.build(items, 1)), describe(restored));
+        assertNull(cache.read(key, 7));
+    }
+
+    @Test
+    public void replacesTheMappedStoreOfAChangedFile() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        ReferenceIndexCache cache = new ReferenceIndexCache(cacheDir);
+        Path file = sourceFile("A = 1");
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(file), "regex");
+        cache.writeMapped(key, producing(List.of(new ReferenceItem("A", "1", null, null, null))));
+
+        Files.write(file, "B = 2".getBytes(StandardCharsets.UTF_8));
+        ReferenceIndexCache.Key changed = ReferenceIndexCache.Key.of(List.of(file), "regex");
+        cache.writeMapped(changed, producing(List.of(new ReferenceItem("B", "2", null, null, null))));
+
+        assertNull(cache.readMapped(key, 2));
+        assertEquals("B", cache.readMapped(changed, 2).get(0).getCode());
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".map")).count());
+        }
+    }
+
+    @Test
+    public void keepsNoPartialStoreWhenProducingFails() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        ReferenceIndexCache cache = new ReferenceIndexCache(cacheDir);
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(sourceFile("A = 1")), "regex");
+
+        assertFalse(cache.writeMapped(key, writer -> {
+            writer.add(new ReferenceItem("A", "1", null, null, null));
+            throw new IOException("parse failed");
+        }));
+
+        assertNull(cache.readMapped(key, 1));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void missesWhenAnyOfSeveralFilesChanges() throws IOException {
+        ReferenceIndexCache cache = new ReferenceIndexCache(folder.newFolder("cache").toPath());
+        Path first = sourceFile("First.java", "A = 1");
+        Path second = sourceFile("Second.java", "B = 2");
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(first, second), "regex");
+        cache.write(key, ReferenceIndex.build(List.of(new ReferenceItem("A", "1", null, null, null)), 1));
+
+        Files.write(second, "B = 3".getBytes(StandardCharsets.UTF_8));
+
+        assertNotNull(cache.read(key, 2));
+        assertNull(cache.read(ReferenceIndexCache.Key.of(List.of(first, second), "regex"), 2));
+        assertNull(cache.read(ReferenceIndexCache.Key.of(List.of(first), "regex"), 2));
+    }
+
+    @Test
+    public void missesWhenNothingWasWritten() throws IOException {
+        ReferenceIndexCache cache = new ReferenceIndexCache(folder.newFolder("cache").toPath());
+
+        assertNull(cache.read(ReferenceIndexCache.Key.of(List.of(sourceFile("A = 1")), "regex"), 1));
+    }
+
+    @Test
+    public void ignoresACorruptFile() throws IOException {
+        Path cacheDir = folder.newFolder("cache").toPath();
+        ReferenceIndexCache cache = new ReferenceIndexCache(cacheDir);
+        ReferenceIndexCache.Key key = ReferenceIndexCache.Key.of(List.of(sourceFile("A = 1")), "regex");
+        cache.write(key, ReferenceIndex.build(List.of(new ReferenceItem("A", "1", null, null, null)), 1));
+
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                byte[] bytes = Files.readAllBytes(file);
+                Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+            }
+        }
+
+        assertNull(cache.read(key, 1));
+    }
+
+    private static ReferenceIndexCache.ItemProducer producing(List<ReferenceItem> items) {
+        return writer -> {
+            for (ReferenceItem item : items) {
+                writer.add(item);
+            }
+        };
+    }
+
+    private Path sourceFile(String content) throws IOException {
+        return sourceFile("Codes.java", content);
+    }
+
+    private Path sourceFile(String name, String content) throws IOException {
+        Path file = folder.newFile(name).toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> describe(ReferenceIndex index) {
+        List<String> rows = new ArrayList<>();
+        for (ReferenceItem item : index.getItems()) {
+            rows.add(item.getCode() + "|" + item.getValue() + "|" + item.getDescription() + "|" + item.getCategory() + "|" + item.getTags());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,62 @@
+package com.zachholt.referencelookup.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SearchSessionTest {
+    @Test
+    public void narrowsWhenTheQueryIsExtended() {
+        SearchSession session = new SearchSession();
+        session.update(1, "http", new int[]{2, 5, 9}, false);
+
+        SearchSession.Scope scope = session.scopeFor(1, "http_n");
+        assertArrayEquals(new int[]{2, 5, 9}, scope.ids);
+        assertFalse(scope.fuzzy);
+        assertArrayEquals(new int[]{2, 5, 9}, session.scopeFor(1, "http").ids);
+    }
+
+    @Test
+    public void searchesEverythingAfterOtherEdits() {
+        SearchSession session = new SearchSession();
+        assertNull(session.scopeFor(1, "http"));
+
+        session.update(1, "http_n", new int[]{5}, false);
+        assertNull(session.scopeFor(1, "http"));
+        assertNull(session.scopeFor(1, "http_x"));
+        assertNull(session.scopeFor(1, "xhttp_n"));
+    }
+
+    @Test
+    public void searchesEverythingOnANewGeneration() {
+        SearchSession session = new SearchSession();
+        session.update(1, "http", new int[]{2, 5}, false);
+
+        assertNull(session.scopeFor(2, "http_n"));
+
+        session.update(2, "http_n", new int[]{5}, false);
+        assertArrayEquals(new int[]{5}, session.scopeFor(2, "http_no").ids);
+        assertNull(session.scopeFor(1, "http_no"));
+    }
+
+    @Test
+    public void remembersWhetherTheMatchesWereFuzzy() {
+        SearchSession session = new SearchSession();
+        session.update(1, "htpp", new int[]{7}, true);
+
+        assertTrue(session.scopeFor(1, "htpp_").fuzzy);
+    }
+
+    @Test
+    public void forgetsEverythingOnReset() {
+        SearchSession session = new SearchSession();
+        session.update(1, "http", new int[]{2}, false);
+
+        session.reset();
+
+        assertNull(session.scopeFor(1, "http_n"));
+    }
+}